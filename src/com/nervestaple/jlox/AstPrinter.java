@@ -38,6 +38,16 @@ public class AstPrinter implements Expr.Visitor<String> {
         return expr.object + "." + expr.name + " = " + expr.value;
     }
 
+    @Override
+    public String visit(Expr.Index expr) {
+        return parenthesize("[]", expr.object, expr.index);
+    }
+
+    @Override
+    public String visit(Expr.SetIndex expr) {
+        return parenthesize("[]=", expr.object, expr.index, expr.value);
+    }
+
     @Override
     public String visit(Expr.Super expr) {
         return expr.keyword + "." + expr.method;
@@ -0,0 +1,177 @@
+package com.nervestaple.jlox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// runs many scripts, or one script over many input records, in parallel
+public class BatchRunner {
+
+    private final LoxEngine engine;
+    private final int threads;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    // each worker thread keeps one context and buffers its output so runs don't interleave
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    public BatchRunner(LoxEngine engine, int threads) {
+        this.engine = engine;
+        this.threads = threads;
+    }
+
+    public int runScripts(Path directoryOrManifest) throws IOException {
+
+        List<Path> scripts;
+        if (Files.isDirectory(directoryOrManifest)) {
+            try (Stream<Path> paths = Files.walk(directoryOrManifest)) {
+                scripts = paths.filter(path -> path.toString().endsWith(".lox"))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        } else {
+            scripts = readManifest(directoryOrManifest);
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        for (Path script : scripts) {
+            jobs.add(new Job(script, script.toString(), null));
+        }
+
+        return run(jobs);
+    }
+
+    public int runInputs(Path script, Path inputs) throws IOException {
+
+        List<Job> jobs = new ArrayList<>();
+        int line = 1;
+        for (String record : Files.readAllLines(inputs, Charset.defaultCharset())) {
+            jobs.add(new Job(script, inputs + ":" + line, record));
+            line++;
+        }
+
+        return run(jobs);
+    }
+
+    private int run(List<Job> jobs) {
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        failures.set(0);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Job job : jobs) {
+                futures.add(pool.submit(() -> workers.get().run(job)));
+            }
+
+            // a job that throws counts as failed, the rest of the batch still runs
+            for (int index = 0; index < futures.size(); index++) {
+                try {
+                    futures.get(index).get();
+                } catch (ExecutionException exception) {
+                    failures.incrementAndGet();
+
+                    synchronized (this) {
+                        System.err.println("[" + jobs.get(index).name + "]");
+                        System.err.println(exception.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch did not complete", exception);
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Ran %d scripts (%d failed) on %d threads in %.3f s, %.1f scripts/s%n",
+                jobs.size(), failures.get(), threads, seconds, jobs.size() / seconds);
+
+        return failures.get();
+    }
+
+    private static List<Path> readManifest(Path manifest) throws IOException {
+
+        List<Path> scripts = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, Charset.defaultCharset())) {
+
+            // skip blank lines and comments
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            scripts.add(manifest.toAbsolutePath().getParent().resolve(line));
+        }
+
+        return scripts;
+    }
+
+    private static class Job {
+
+        final Path script;
+        final String name;
+        final String input;
+
+        Job(Path script, String name, String input) {
+            this.script = script;
+            this.name = name;
+            this.input = input;
+        }
+    }
+
+    private class Worker {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final LoxContext context = engine.newContext(new PrintStream(out), new PrintStream(err));
+
+        void run(Job job) {
+
+            try {
+                boolean success;
+                try {
+                    if (job.input != null) {
+                        context.define("input", job.input);
+                    }
+
+                    success = context.runFile(job.script);
+                } catch (IOException exception) {
+                    new PrintStream(err).println(exception);
+                    success = false;
+                }
+
+                if (!success) {
+                    failures.incrementAndGet();
+                }
+
+                synchronized (BatchRunner.this) {
+                    System.out.print(out.toString());
+
+                    if (!success) {
+                        System.err.println("[" + job.name + "]");
+                        System.err.print(err.toString());
+                    }
+                }
+            } finally {
+
+                // the next job on this worker starts clean even if this one threw
+                out.reset();
+                err.reset();
+                context.reset();
+            }
+        }
+    }
+}
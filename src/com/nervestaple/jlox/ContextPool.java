@@ -0,0 +1,49 @@
+package com.nervestaple.jlox;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// hands out ready-made contexts and takes them back once a script is done
+public class ContextPool {
+
+    private final LoxEngine engine;
+    private final BlockingQueue<LoxContext> idle;
+
+    public ContextPool(LoxEngine engine, int size) {
+        this.engine = engine;
+        this.idle = new ArrayBlockingQueue<>(size);
+
+        for (int index = 0; index < size; index++) {
+            idle.add(engine.newContext());
+        }
+    }
+
+    public LoxContext acquire() {
+
+        // create a new context rather than wait when every pooled one is busy
+        LoxContext context = idle.poll();
+        if (context == null) {
+            context = engine.newContext();
+        }
+
+        return context;
+    }
+
+    public void release(LoxContext context) {
+
+        context.reset();
+
+        // contexts beyond the pool's size are left for the garbage collector
+        idle.offer(context);
+    }
+
+    public boolean run(String source) {
+
+        LoxContext context = acquire();
+        try {
+            return context.run(source);
+        } finally {
+            release(context);
+        }
+    }
+}
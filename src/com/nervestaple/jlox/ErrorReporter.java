@@ -0,0 +1,78 @@
+package com.nervestaple.jlox;
+
+import com.nervestaple.jlox.interpreter.RuntimeError;
+import com.nervestaple.jlox.scanner.Token;
+import com.nervestaple.jlox.scanner.TokenType;
+
+import java.io.PrintStream;
+
+public class ErrorReporter {
+
+    private final PrintStream err;
+    private boolean hadError = false;
+    private boolean hadRuntimeError = false;
+    private RuntimeError runtimeError;
+
+    public ErrorReporter(PrintStream err) {
+        this.err = err;
+    }
+
+    public void error(int line, String message) {
+        report(line, "", message);
+    }
+
+    public void error(Token token, String message) {
+
+        if(token.type == TokenType.EOF) {
+            report(token.line, " at end", message);
+        } else {
+            report(token.line, " at '" + token.lexeme + "'", message);
+        }
+    }
+
+    public void runtimeError(RuntimeError error) {
+
+        // an error in a task that nothing awaited has no call site to report
+        if (error.token == null) {
+            print(error.getMessage());
+        } else {
+            print(error.getMessage() + "\n[line " + error.token.line + "]");
+        }
+
+        hadRuntimeError = true;
+        runtimeError = error;
+    }
+
+    // reports an already formatted error, i.e. one collected while compiling a module
+    public void report(String message) {
+        print(message);
+        hadError = true;
+    }
+
+    public boolean hadError() {
+        return hadError;
+    }
+
+    public boolean hadRuntimeError() {
+        return hadRuntimeError;
+    }
+
+    // the error that stopped the last run, i.e. a LimitError when it ran over its budget
+    public RuntimeError runtimeError() {
+        return runtimeError;
+    }
+
+    public void reset() {
+        hadError = false;
+        hadRuntimeError = false;
+        runtimeError = null;
+    }
+
+    protected void print(String message) {
+        err.println(message);
+    }
+
+    private void report(int line, String where, String message) {
+        report("[line " + line + "] Error" + where + ": " + message);
+    }
+}
@@ -0,0 +1,240 @@
+package com.nervestaple.jlox;
+
+import com.nervestaple.jlox.interpreter.Counters;
+import com.nervestaple.jlox.parser.Expr;
+import com.nervestaple.jlox.parser.Stmt;
+import com.nervestaple.jlox.scanner.Token;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// lists a script's source with how many times each line ran, the most of anything starting on it,
+// then the calls to each function
+public class ExecutionReport implements Expr.Visitor<Integer>, Stmt.Visitor<Integer> {
+
+    // the line of a node without any tokens in it
+    private static final int NO_LINE = Integer.MAX_VALUE;
+
+    private final Counters counters;
+    private final Map<Integer, Long> lines = new HashMap<>();
+
+    private ExecutionReport(Counters counters) {
+        this.counters = counters;
+    }
+
+    public static void print(PrintStream out, Path path, List<Stmt> statements,
+                             Counters counters) throws IOException {
+
+        ExecutionReport report = new ExecutionReport(counters);
+        report.lines(statements);
+
+        List<String> source = Files.readAllLines(path);
+        for (int index = 0; index < source.size(); index++) {
+
+            Long count = report.lines.get(index + 1);
+            out.println(String.format("%10s %5d  %s",
+                    count == null ? "" : count.toString(), index + 1, source.get(index)));
+        }
+
+        List<Stmt.Function> functions = new ArrayList<>();
+        for (Stmt.Function function : counters.functions()) {
+            functions.add(function);
+        }
+
+        functions.sort((left, right) -> Long.compare(counters.calls(right), counters.calls(left)));
+
+        out.println();
+        out.println(String.format("%10s  %s", "calls", "function"));
+        for (Stmt.Function function : functions) {
+            out.println(String.format("%10d  %s:%d", counters.calls(function),
+                    function.name.lexeme, function.name.line));
+        }
+    }
+
+    private int lines(List<? extends Stmt> statements) {
+
+        int line = NO_LINE;
+        for (Stmt statement : statements) {
+            line = Math.min(line, statement.accept(this));
+        }
+
+        return line;
+    }
+
+    private int line(Stmt stmt) {
+        return stmt == null ? NO_LINE : stmt.accept(this);
+    }
+
+    private int line(Expr expr) {
+        return expr == null ? NO_LINE : expr.accept(this);
+    }
+
+    private int line(List<Expr> exprs) {
+
+        int line = NO_LINE;
+        for (Expr expr : exprs) {
+            line = Math.min(line, line(expr));
+        }
+
+        return line;
+    }
+
+    // records the count of a node against the first line it covers
+    private int record(long executions, int... lines) {
+
+        int line = NO_LINE;
+        for (int candidate : lines) {
+            line = Math.min(line, candidate);
+        }
+
+        if (line != NO_LINE && executions > 0) {
+            this.lines.merge(line, executions, Math::max);
+        }
+
+        return line;
+    }
+
+    private static int line(Token token) {
+        return token.line;
+    }
+
+    @Override
+    public Integer visit(Expr.Assign expr) {
+        return record(counters.executions(expr), line(expr.name), line(expr.value));
+    }
+
+    @Override
+    public Integer visit(Expr.Binary expr) {
+        return record(counters.executions(expr), line(expr.left), line(expr.operator), line(expr.right));
+    }
+
+    @Override
+    public Integer visit(Expr.Call expr) {
+        return record(counters.executions(expr), line(expr.callee), line(expr.paren), line(expr.arguments));
+    }
+
+    @Override
+    public Integer visit(Expr.Get expr) {
+        return record(counters.executions(expr), line(expr.object), line(expr.name));
+    }
+
+    @Override
+    public Integer visit(Expr.Grouping expr) {
+        return record(counters.executions(expr), line(expr.expression));
+    }
+
+    @Override
+    public Integer visit(Expr.Index expr) {
+        return record(counters.executions(expr), line(expr.object), line(expr.bracket), line(expr.index));
+    }
+
+    @Override
+    public Integer visit(Expr.Literal expr) {
+        return NO_LINE;
+    }
+
+    @Override
+    public Integer visit(Expr.Logical expr) {
+        return record(counters.executions(expr), line(expr.left), line(expr.operator), line(expr.right));
+    }
+
+    @Override
+    public Integer visit(Expr.Set expr) {
+        return record(counters.executions(expr), line(expr.object), line(expr.name), line(expr.value));
+    }
+
+    @Override
+    public Integer visit(Expr.SetIndex expr) {
+        return record(counters.executions(expr), line(expr.object), line(expr.bracket), line(expr.index),
+                line(expr.value));
+    }
+
+    @Override
+    public Integer visit(Expr.Super expr) {
+        return record(counters.executions(expr), line(expr.keyword));
+    }
+
+    @Override
+    public Integer visit(Expr.This expr) {
+        return record(counters.executions(expr), line(expr.keyword));
+    }
+
+    @Override
+    public Integer visit(Expr.Unary expr) {
+        return record(counters.executions(expr), line(expr.operator), line(expr.right));
+    }
+
+    @Override
+    public Integer visit(Expr.Variable expr) {
+        return record(counters.executions(expr), line(expr.name));
+    }
+
+    @Override
+    public Integer visit(Stmt.Block stmt) {
+        return record(counters.executions(stmt), lines(stmt.statements));
+    }
+
+    @Override
+    public Integer visit(Stmt.Class stmt) {
+        lines(stmt.methods);
+        return record(counters.executions(stmt), line(stmt.name));
+    }
+
+    @Override
+    public Integer visit(Stmt.Expression stmt) {
+        return record(counters.executions(stmt), line(stmt.expression));
+    }
+
+    @Override
+    public Integer visit(Stmt.ForIn stmt) {
+        return record(counters.executions(stmt), line(stmt.name), line(stmt.iterable), line(stmt.body));
+    }
+
+    @Override
+    public Integer visit(Stmt.Function stmt) {
+        lines(stmt.body);
+        return record(counters.executions(stmt), line(stmt.name));
+    }
+
+    @Override
+    public Integer visit(Stmt.If stmt) {
+        return record(counters.executions(stmt), line(stmt.condition), line(stmt.thenBranch),
+                line(stmt.elseBranch));
+    }
+
+    @Override
+    public Integer visit(Stmt.Import stmt) {
+        return record(counters.executions(stmt), line(stmt.keyword));
+    }
+
+    @Override
+    public Integer visit(Stmt.Print stmt) {
+        return record(counters.executions(stmt), line(stmt.keyword), line(stmt.expression));
+    }
+
+    @Override
+    public Integer visit(Stmt.Return stmt) {
+        return record(counters.executions(stmt), line(stmt.keyword), line(stmt.value));
+    }
+
+    @Override
+    public Integer visit(Stmt.Var stmt) {
+        return record(counters.executions(stmt), line(stmt.name), line(stmt.initializer));
+    }
+
+    @Override
+    public Integer visit(Stmt.While stmt) {
+        return record(counters.executions(stmt), line(stmt.keyword), line(stmt.condition), line(stmt.body));
+    }
+
+    @Override
+    public Integer visit(Stmt.Yield stmt) {
+        return record(counters.executions(stmt), line(stmt.keyword), line(stmt.value));
+    }
+}
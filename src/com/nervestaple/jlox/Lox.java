@@ -1,105 +1,142 @@
 package com.nervestaple.jlox;
 
+import com.nervestaple.jlox.interpreter.Allocations;
+import com.nervestaple.jlox.interpreter.Counters;
 import com.nervestaple.jlox.interpreter.Interpreter;
-import com.nervestaple.jlox.interpreter.RuntimeError;
-import com.nervestaple.jlox.parser.Expr;
-import com.nervestaple.jlox.parser.Parser;
-import com.nervestaple.jlox.parser.Stmt;
-import com.nervestaple.jlox.resolver.Resolver;
-import com.nervestaple.jlox.scanner.Scanner;
-import com.nervestaple.jlox.scanner.Token;
-import com.nervestaple.jlox.scanner.TokenType;
+import com.nervestaple.jlox.interpreter.Output;
+import com.nervestaple.jlox.interpreter.Profiler;
+import com.nervestaple.jlox.module.LoxModule;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 
 import static java.lang.System.*;
 
 public class Lox {
 
-    private static boolean hadError = false;
+    private static final LoxEngine engine = new LoxEngine();
 
-    private static boolean hadRuntimeError = false;
+    private static final long PROFILE_INTERVAL_NANOS = 1_000_000;
+    private static final int PROFILE_TOP_FUNCTIONS = 20;
+    private static final int ALLOCATION_TOP_SITES = 20;
 
-    private static final Interpreter interpreter = new Interpreter();
+    private static final long MIN_STACK_BYTES = 8 << 20;
 
-    public static void runtimeError(RuntimeError error) {
-
-        System.err.println(error.getMessage() + "\n[line " + error.token.line + "]");
-        hadRuntimeError = true;
+    public static void runFile(String path) throws IOException {
+        runFile(path, new RunOptions());
     }
 
-    public static void error(int line, String message) {
-        report(line, "", message);
-    }
+    public static void runFile(String path, RunOptions options) throws IOException {
 
-    public static void error(Token token, String message) {
+        LoxContext context = engine.newContext();
 
-        if(token.type == TokenType.EOF) {
-            report(token.line, " at end", message);
-        } else {
-            report(token.line, " at '" + token.lexeme + "'", message);
+        Profiler profiler = null;
+        if (options.profile != null) {
+            profiler = context.profile(PROFILE_INTERVAL_NANOS);
         }
-    }
 
-    private static void report(int line, String where, String message) {
-        err.println("[line " + line + "] Error" + where + ": " + message);
-        hadError = true;
-    }
+        Counters counters = null;
+        if (options.count) {
+            counters = context.count();
+        }
 
-    public static void runFile(String path) throws IOException {
+        Allocations allocations = null;
+        if (options.allocations) {
+            allocations = context.trackAllocations();
+        }
 
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+        context.maxDepth(options.maxDepth);
+        runWithStack(context, Paths.get(path),
+                Math.max(MIN_STACK_BYTES, options.maxDepth * Interpreter.STACK_BYTES_PER_CALL));
+
+        if (counters != null && !context.errors().hadError()) {
+            LoxModule module = engine.modules().load(Paths.get(path), context.errors());
+            ExecutionReport.print(err, Paths.get(path), module.statements, counters);
+        }
+
+        if (profiler != null) {
+            profiler.stop();
+            profiler.writeCollapsed(options.profile);
+            profiler.printTop(err, PROFILE_TOP_FUNCTIONS);
+        }
+
+        if (allocations != null) {
+            allocations.print(err, ALLOCATION_TOP_SITES);
+        }
+
+        RunStats stats = context.stats();
+        if (options.stats && stats != null) {
+            if (options.statsJson) {
+                stats.printJson(err);
+            } else {
+                stats.print(err);
+            }
+        }
 
         // indicate that we've encountered an error
-        if (hadError) {
+        if (context.errors().hadError()) {
             System.exit(65);
         }
 
-        if(hadRuntimeError) {
+        if(context.errors().hadRuntimeError()) {
             System.exit(70);
         }
     }
 
+    // runs on a thread of its own, so deep recursion doesn't need a bigger stack for every thread
+    private static void runWithStack(LoxContext context, Path path, long stackSize) throws IOException {
+
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                context.runFile(path);
+            } catch (Throwable exception) {
+                failure[0] = exception;
+            }
+        }, "lox", stackSize);
+
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        // rethrow on this thread so a crash still exits non-zero
+        Throwable exception = failure[0];
+        if (exception instanceof IOException) {
+            throw (IOException) exception;
+        } else if (exception instanceof RuntimeException) {
+            throw (RuntimeException) exception;
+        } else if (exception instanceof Error) {
+            throw (Error) exception;
+        } else if (exception != null) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
     public static void runPrompt() throws IOException {
 
         InputStreamReader input = new InputStreamReader(in);
         BufferedReader reader = new BufferedReader(input);
 
+        // print each line as soon as it's ready
+        LoxContext context = engine.newContext(new Output(out, true), err);
+
         for (;;) {
 
             out.print("> ");
-            run(reader.readLine());
-            hadError = false;
-        }
-    }
+            String line = reader.readLine();
 
-    private static void run(String source) {
+            // end of input
+            if (line == null) {
+                break;
+            }
 
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-        Parser parser = new Parser(tokens);
-        List<Stmt> statements = parser.parse();
-
-        // stop if there was an error
-        if (hadError) {
-            return;
+            context.run(line);
         }
-
-        Resolver resolver = new Resolver(interpreter);
-        resolver.resolve(statements);
-
-        // stop if there was a resolution error
-        if (hadError) {
-            return;
-        }
-
-        interpreter.interpret(statements);
     }
 }
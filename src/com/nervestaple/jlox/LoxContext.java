@@ -0,0 +1,177 @@
+package com.nervestaple.jlox;
+
+import com.nervestaple.jlox.interpreter.Allocations;
+import com.nervestaple.jlox.interpreter.Budget;
+import com.nervestaple.jlox.interpreter.Counters;
+import com.nervestaple.jlox.interpreter.Interpreter;
+import com.nervestaple.jlox.interpreter.LoxMetrics;
+import com.nervestaple.jlox.interpreter.Output;
+import com.nervestaple.jlox.interpreter.Prelude;
+import com.nervestaple.jlox.interpreter.Profiler;
+import com.nervestaple.jlox.module.CompileStats;
+import com.nervestaple.jlox.module.LoxModule;
+import com.nervestaple.jlox.scanner.Token;
+import com.nervestaple.jlox.scanner.TokenType;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+
+// a context is confined to one thread at a time, separate contexts can run in parallel
+public class LoxContext {
+
+    // a context runs on its caller's thread, so by default calls only nest as deep as the stack
+    // threads get by default has room for
+    private static final int THREAD_MAX_DEPTH = Interpreter.maxDepthFor(defaultStackBytes());
+
+    private final LoxEngine engine;
+    private final ErrorReporter reporter;
+    private final Interpreter interpreter;
+    private final ReplSession session;
+
+    // what the last script run cost, phase by phase
+    private RunStats stats;
+
+    // what each run may do before it is stopped, or null for no limit
+    private Budget budget;
+
+    LoxContext(LoxEngine engine, Prelude prelude, Output out, PrintStream err) {
+        this.engine = engine;
+        this.reporter = new ErrorReporter(err);
+        this.interpreter = new Interpreter(prelude, engine.modules(), reporter, out);
+        this.session = new ReplSession(this);
+        interpreter.maxDepth(THREAD_MAX_DEPTH);
+    }
+
+    public boolean run(String source) {
+
+        reporter.reset();
+        interpreter.limit(budget);
+        session.run(source);
+        return !reporter.hadError() && !reporter.hadRuntimeError();
+    }
+
+    public boolean runFile(Path path) throws IOException {
+
+        reporter.reset();
+
+        // the script and everything it imports are compiled up front
+        LoxModule module = engine.modules().load(path, reporter);
+        if (reporter.hadError()) {
+            return false;
+        }
+
+        long calls = interpreter.calls();
+        long environments = interpreter.environments();
+        long instances = interpreter.instances();
+        interpreter.takePeakDepth();
+
+        interpreter.limit(budget);
+        long start = System.nanoTime();
+        long allocated = CompileStats.allocatedBytes();
+        interpreter.interpret(module);
+        long executeTime = System.nanoTime() - start;
+        long executeBytes = CompileStats.allocatedSince(allocated);
+
+        stats = new RunStats(path, module.stats, executeTime, executeBytes,
+                interpreter.calls() - calls, interpreter.environments() - environments,
+                interpreter.instances() - instances, interpreter.takePeakDepth());
+        LoxMetrics.INSTANCE.ran(path.toString(), module.stats.scanTime + module.stats.parseTime,
+                module.stats.resolveTime, executeTime);
+
+        return !reporter.hadRuntimeError();
+    }
+
+    // starts sampling what this context runs, stop the profiler to see the results
+    public Profiler profile(long intervalNanos) {
+
+        Profiler profiler = new Profiler(intervalNanos);
+        interpreter.profile(profiler);
+        profiler.start();
+        return profiler;
+    }
+
+    // counts executions of what this context runs from now on
+    public Counters count() {
+
+        Counters counters = new Counters();
+        interpreter.count(counters);
+        return counters;
+    }
+
+    // tallies what this context allocates from now on, by kind and source line
+    public Allocations trackAllocations() {
+
+        Allocations allocations = new Allocations();
+        interpreter.track(allocations);
+        return allocations;
+    }
+
+    // stops each run from now on that goes over the budget with a LimitError
+    public void limit(Budget budget) {
+        this.budget = budget;
+    }
+
+    // how deep Lox calls may nest before the script stops with a runtime error, raise it only for a
+    // thread with a bigger stack than the default, see Interpreter.maxDepthFor
+    public void maxDepth(int maxDepth) {
+        interpreter.maxDepth(maxDepth);
+    }
+
+    // what the last script run with runFile cost, or null if none has run
+    public RunStats stats() {
+        return stats;
+    }
+
+    // writes out anything printed that is still buffered
+    public void flush() {
+        interpreter.flush();
+    }
+
+    public void define(String name, Object value) {
+        interpreter.global.define(name, value);
+    }
+
+    public Object get(String name) {
+        return interpreter.global.get(new Token(TokenType.IDENTIFIER, name, null, 0));
+    }
+
+    // drops everything this context defined or compiled, leaving only the prelude
+    public void reset() {
+        interpreter.reset();
+        interpreter.maxDepth(THREAD_MAX_DEPTH);
+        session.reset();
+        reporter.reset();
+        stats = null;
+        budget = null;
+    }
+
+    public ErrorReporter errors() {
+        return reporter;
+    }
+
+    LoxEngine engine() {
+        return engine;
+    }
+
+    Interpreter interpreter() {
+        return interpreter;
+    }
+
+    // the -Xss of this JVM, which is 1MB on most platforms when it isn't set
+    private static long defaultStackBytes() {
+
+        long kilobytes = 0;
+        try {
+            HotSpotDiagnosticMXBean diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            kilobytes = Long.parseLong(diagnostics.getVMOption("ThreadStackSize").getValue());
+        } catch (RuntimeException exception) {
+            // not a HotSpot JVM
+        }
+
+        return (kilobytes > 0 ? kilobytes : 1024) << 10;
+    }
+}
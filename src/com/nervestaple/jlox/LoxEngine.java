@@ -0,0 +1,55 @@
+package com.nervestaple.jlox;
+
+import com.nervestaple.jlox.interpreter.LoxMetrics;
+import com.nervestaple.jlox.interpreter.Output;
+import com.nervestaple.jlox.interpreter.Prelude;
+import com.nervestaple.jlox.module.ModuleLoader;
+
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+public class LoxEngine {
+
+    private final ModuleLoader modules = new ModuleLoader();
+    private final Prelude prelude = Prelude.shared();
+
+    // runs submitted sources, owned by whoever passed it in and left for them to shut down
+    private final ExecutorService executor;
+
+    public LoxEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public LoxEngine(ExecutorService executor) {
+        LoxMetrics.register();
+        this.executor = executor;
+    }
+
+    public LoxContext newContext() {
+        return newContext(System.out, System.err);
+    }
+
+    public LoxContext newContext(PrintStream out, PrintStream err) {
+        return newContext(new Output(out, false), err);
+    }
+
+    public LoxContext newContext(Output out, PrintStream err) {
+        return new LoxContext(this, prelude, out, err);
+    }
+
+    public CompletableFuture<LoxContext> submit(String source) {
+
+        LoxContext context = newContext();
+        return submit(context, source).thenApply(success -> context);
+    }
+
+    public CompletableFuture<Boolean> submit(LoxContext context, String source) {
+        return CompletableFuture.supplyAsync(() -> context.run(source), executor);
+    }
+
+    ModuleLoader modules() {
+        return modules;
+    }
+}
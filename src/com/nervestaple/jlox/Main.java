@@ -1,6 +1,7 @@
 package com.nervestaple.jlox;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 
 import static java.lang.System.out;
 
@@ -8,20 +9,115 @@ public class Main {
 
     public static void main(String[] args) {
 
-        if (args.length > 1) {
-            out.println("Usage: jlox [script]");
+        try {
+
+            if (args.length > 0 && args[0].equals("--batch")) {
+                batch(args);
+            } else if (args.length > 0) {
+                script(args);
+            } else {
+                Lox.runPrompt();
+            }
+        } catch (IOException exception) {
+            out.println(exception);
+        }
+    }
+
+    private static void script(String[] args) throws IOException {
+
+        RunOptions options = new RunOptions();
+        String script = null;
+
+        for (int index = 0; index < args.length; index++) {
+
+            if (args[index].equals("--profile") && index + 1 < args.length) {
+                options.profile = Paths.get(args[++index]);
+            } else if (args[index].equals("--count")) {
+                options.count = true;
+            } else if (args[index].equals("--allocations")) {
+                options.allocations = true;
+            } else if (args[index].equals("--max-depth") && index + 1 < args.length) {
+                options.maxDepth = count(args[++index]);
+            } else if (args[index].equals("--stats")) {
+                options.stats = true;
+            } else if (args[index].equals("--stats=json")) {
+                options.stats = true;
+                options.statsJson = true;
+            } else if (script == null && !args[index].startsWith("--")) {
+                script = args[index];
+            } else {
+                usage();
+                return;
+            }
+        }
+
+        if (script == null) {
+            usage();
+            return;
+        }
+
+        Lox.runFile(script, options);
+    }
+
+    private static void batch(String[] args) throws IOException {
+
+        String scripts = null;
+        String inputs = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int index = 1; index < args.length; index++) {
+
+            if (args[index].equals("--inputs") && index + 1 < args.length) {
+                inputs = args[++index];
+            } else if (args[index].equals("--threads") && index + 1 < args.length) {
+                threads = count(args[++index]);
+            } else if (scripts == null) {
+                scripts = args[index];
+            } else {
+                usage();
+                return;
+            }
+        }
+
+        if (scripts == null) {
+            usage();
+            return;
+        }
+
+        BatchRunner runner = new BatchRunner(new LoxEngine(), threads);
+        int failures;
+        if (inputs != null) {
+            failures = runner.runInputs(Paths.get(scripts), Paths.get(inputs));
         } else {
+            failures = runner.runScripts(Paths.get(scripts));
+        }
+
+        if (failures > 0) {
+            System.exit(70);
+        }
+    }
 
-            try {
+    // a positive whole number argument, or a usage error
+    private static int count(String value) {
 
-                if (args.length == 1) {
-                    Lox.runFile(args[0]);
-                } else {
-                    Lox.runPrompt();
-                }
-            } catch (IOException exception) {
-                out.println(exception);
+        try {
+            int count = Integer.parseInt(value);
+            if (count > 0) {
+                return count;
             }
+        } catch (NumberFormatException exception) {
+            // fall through to the usage error
         }
+
+        out.println("Expected a positive whole number but got '" + value + "'.");
+        usage();
+        return 0;
+    }
+
+    private static void usage() {
+        out.println("Usage: jlox [--profile <output>] [--count] [--allocations] [--stats[=json]] [--max-depth n] [script]");
+        out.println("       jlox --batch <directory|manifest> [--threads n]");
+        out.println("       jlox --batch <script> --inputs <file> [--threads n]");
+        System.exit(64);
     }
 }
@@ -0,0 +1,236 @@
+package com.nervestaple.jlox;
+
+import com.nervestaple.jlox.interpreter.Interpreter;
+import com.nervestaple.jlox.interpreter.LoxMetrics;
+import com.nervestaple.jlox.parser.Expr;
+import com.nervestaple.jlox.parser.Parser;
+import com.nervestaple.jlox.parser.Stmt;
+import com.nervestaple.jlox.resolver.Resolver;
+import com.nervestaple.jlox.scanner.Scanner;
+import com.nervestaple.jlox.scanner.Token;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ReplSession {
+
+    private static final int MAX_COMPILED_FRAGMENTS = 256;
+
+    // what source run from a string is called in the metrics
+    private static final String SCRIPT_NAME = "<source>";
+
+    private final LoxContext context;
+    private final Interpreter interpreter;
+
+    // state that carries over from one input to the next
+    private final Map<String, String> symbols = new HashMap<>();
+    private final Map<Expr, Integer> resolved = new HashMap<>();
+    private final Resolver resolver;
+
+    // recently entered fragments, so repeating a line skips compilation
+    private final Map<String, Fragment> compiled =
+            new LinkedHashMap<String, Fragment>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Fragment> eldest) {
+            return size() > MAX_COMPILED_FRAGMENTS;
+        }
+    };
+
+    // functions that may still be called after their fragment has run
+    private final ReferenceQueue<Stmt.Function> released = new ReferenceQueue<>();
+    private final Set<FunctionReference> retained = new HashSet<>();
+
+    public ReplSession(LoxContext context) {
+        this.context = context;
+        this.interpreter = context.interpreter();
+        this.resolver = new Resolver(resolved, context.errors());
+    }
+
+    public void run(String source) {
+
+        evictReleased();
+
+        // a repeated fragment costs nothing to compile
+        long parseTime = 0;
+        long resolveTime = 0;
+
+        Fragment fragment = compiled.get(source);
+        if (fragment == null) {
+            fragment = compile(source);
+
+            // stop if there was an error
+            if (fragment == null) {
+                return;
+            }
+
+            compiled.put(source, fragment);
+            parseTime = fragment.parseTime;
+            resolveTime = fragment.resolveTime;
+        }
+
+        interpreter.resolve(fragment.locals);
+        long start = System.nanoTime();
+        interpreter.interpret(fragment.statements);
+        long executeTime = System.nanoTime() - start;
+        release(fragment);
+
+        LoxMetrics.INSTANCE.ran(SCRIPT_NAME, parseTime, resolveTime, executeTime);
+    }
+
+    // forgets every fragment and name seen so far, for a context that is being reused
+    public void reset() {
+
+        compiled.clear();
+        symbols.clear();
+        resolved.clear();
+        retained.clear();
+        while (released.poll() != null) {
+            // the interpreter's locals were cleared along with everything else
+        }
+    }
+
+    private Fragment compile(String source) {
+
+        ErrorReporter reporter = context.errors();
+        long start = System.nanoTime();
+        Scanner scanner = new Scanner(source, symbols, reporter);
+        List<Token> tokens = scanner.scanTokens();
+        Parser parser = new Parser(tokens, reporter);
+        List<Stmt> statements = parser.parse();
+        long parseTime = System.nanoTime() - start;
+
+        if (reporter.hadError()) {
+            return null;
+        }
+
+        start = System.nanoTime();
+        resolved.clear();
+        resolver.resolve(statements);
+        long resolveTime = System.nanoTime() - start;
+        LoxMetrics.INSTANCE.compiledSource(parseTime, resolveTime);
+
+        // imports are compiled, and counted, by the module loader
+        context.engine().modules().link(statements, Path.of(""), reporter);
+
+        if (reporter.hadError()) {
+            return null;
+        }
+
+        return new Fragment(statements, new HashMap<>(resolved), parseTime, resolveTime);
+    }
+
+    private void release(Fragment fragment) {
+
+        // a repeated fragment is still tracked from its earlier run
+        if (fragment.retention != null && fragment.retention.liveFunctions > 0) {
+            return;
+        }
+
+        List<Stmt.Function> functions = new ArrayList<>();
+        collectFunctions(fragment.statements, functions);
+
+        // nothing can reach this fragment's expressions once it has run
+        if (functions.isEmpty()) {
+            interpreter.forget(fragment.locals);
+            return;
+        }
+
+        fragment.retention = new Retention(fragment.locals, functions.size());
+        for (Stmt.Function function : functions) {
+            retained.add(new FunctionReference(function, fragment.retention, released));
+        }
+    }
+
+    private void evictReleased() {
+
+        Reference<? extends Stmt.Function> reference;
+        while ((reference = released.poll()) != null) {
+
+            FunctionReference function = (FunctionReference) reference;
+            retained.remove(function);
+
+            function.retention.liveFunctions--;
+            if (function.retention.liveFunctions == 0) {
+                interpreter.forget(function.retention.locals);
+            }
+        }
+    }
+
+    private static void collectFunctions(List<? extends Stmt> statements, List<Stmt.Function> functions) {
+
+        for (Stmt statement : statements) {
+            collectFunctions(statement, functions);
+        }
+    }
+
+    private static void collectFunctions(Stmt statement, List<Stmt.Function> functions) {
+
+        if (statement instanceof Stmt.Function) {
+            functions.add((Stmt.Function) statement);
+            collectFunctions(((Stmt.Function) statement).body, functions);
+        } else if (statement instanceof Stmt.Class) {
+            collectFunctions(((Stmt.Class) statement).methods, functions);
+        } else if (statement instanceof Stmt.Block) {
+            collectFunctions(((Stmt.Block) statement).statements, functions);
+        } else if (statement instanceof Stmt.If) {
+            collectFunctions(((Stmt.If) statement).thenBranch, functions);
+
+            if (((Stmt.If) statement).elseBranch != null) {
+                collectFunctions(((Stmt.If) statement).elseBranch, functions);
+            }
+        } else if (statement instanceof Stmt.While) {
+            collectFunctions(((Stmt.While) statement).body, functions);
+        } else if (statement instanceof Stmt.ForIn) {
+            collectFunctions(((Stmt.ForIn) statement).body, functions);
+        }
+    }
+
+    private static class Fragment {
+
+        final List<Stmt> statements;
+        final Map<Expr, Integer> locals;
+        final long parseTime;
+        final long resolveTime;
+        Retention retention;
+
+        Fragment(List<Stmt> statements, Map<Expr, Integer> locals, long parseTime, long resolveTime) {
+            this.statements = statements;
+            this.locals = locals;
+            this.parseTime = parseTime;
+            this.resolveTime = resolveTime;
+        }
+    }
+
+    // must not refer back to the statements, or the functions would never be released
+    private static class Retention {
+
+        final Map<Expr, Integer> locals;
+        int liveFunctions;
+
+        Retention(Map<Expr, Integer> locals, int liveFunctions) {
+            this.locals = locals;
+            this.liveFunctions = liveFunctions;
+        }
+    }
+
+    private static class FunctionReference extends WeakReference<Stmt.Function> {
+
+        final Retention retention;
+
+        FunctionReference(Stmt.Function function, Retention retention,
+                          ReferenceQueue<Stmt.Function> queue) {
+            super(function, queue);
+            this.retention = retention;
+        }
+    }
+}
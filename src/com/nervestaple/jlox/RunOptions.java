@@ -0,0 +1,25 @@
+package com.nervestaple.jlox;
+
+import com.nervestaple.jlox.interpreter.Interpreter;
+
+import java.nio.file.Path;
+
+// how a script run from the command line is instrumented
+public class RunOptions {
+
+    // where to write sampled call stacks, or null to run without the profiler
+    public Path profile;
+
+    // whether to list how many times each line ran after the script finishes
+    public boolean count;
+
+    // whether to list the sites that allocated the most after the script finishes
+    public boolean allocations;
+
+    // how deep Lox calls may nest, the script runs on a thread with a stack to match
+    public int maxDepth = Interpreter.DEFAULT_MAX_DEPTH;
+
+    // whether to report what each phase cost after the script finishes, and whether as JSON
+    public boolean stats;
+    public boolean statsJson;
+}
@@ -0,0 +1,70 @@
+package com.nervestaple.jlox;
+
+import com.nervestaple.jlox.module.CompileStats;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+// what each phase of running a script cost in time and allocation and what it produced; modules it
+// imports are compiled on other threads and not included
+public class RunStats {
+
+    public final Path script;
+    public final CompileStats compile;
+
+    public final long executeTime;
+    public final long executeBytes;
+    public final long calls;
+    public final long environments;
+    public final long instances;
+    public final int peakDepth;
+
+    RunStats(Path script, CompileStats compile, long executeTime, long executeBytes,
+             long calls, long environments, long instances, int peakDepth) {
+        this.script = script;
+        this.compile = compile;
+        this.executeTime = executeTime;
+        this.executeBytes = executeBytes;
+        this.calls = calls;
+        this.environments = environments;
+        this.instances = instances;
+        this.peakDepth = peakDepth;
+    }
+
+    public void print(PrintStream out) {
+
+        out.println(String.format("%-8s %12s %14s  %s", "phase", "time (ms)", "allocated", "produced"));
+        phase(out, "scan", compile.scanTime, compile.scanBytes, compile.tokens + " tokens");
+        phase(out, "parse", compile.parseTime, compile.parseBytes, compile.nodes + " nodes");
+        phase(out, "resolve", compile.resolveTime, compile.resolveBytes, compile.locals + " locals");
+        phase(out, "execute", executeTime, executeBytes, calls + " calls, "
+                + environments + " environments, " + instances + " instances");
+        out.println("peak environment depth " + peakDepth);
+    }
+
+    public void printJson(PrintStream out) {
+
+        out.println("{\"script\": \"" + escape(script.toString()) + "\", \"phases\": {"
+                + "\"scan\": " + phase(compile.scanTime, compile.scanBytes) + ", "
+                + "\"parse\": " + phase(compile.parseTime, compile.parseBytes) + ", "
+                + "\"resolve\": " + phase(compile.resolveTime, compile.resolveBytes) + ", "
+                + "\"execute\": " + phase(executeTime, executeBytes) + "}, "
+                + "\"tokens\": " + compile.tokens + ", \"nodes\": " + compile.nodes + ", "
+                + "\"locals\": " + compile.locals + ", \"calls\": " + calls + ", "
+                + "\"environments\": " + environments + ", \"instances\": " + instances + ", "
+                + "\"peakDepth\": " + peakDepth + "}");
+    }
+
+    private static void phase(PrintStream out, String name, long time, long bytes, String produced) {
+        out.println(String.format("%-8s %12.3f %14s  %s", name, time / 1e6,
+                bytes < 0 ? "-" : Long.toString(bytes), produced));
+    }
+
+    private static String phase(long time, long bytes) {
+        return "{\"timeNanos\": " + time + ", \"allocatedBytes\": " + bytes + "}";
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,134 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.parser.Stmt;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// tallies what a script allocates by kind, class or function and line; sizes are estimates for a
+// 64-bit JVM, good for comparing sites rather than adding up to the heap
+public class Allocations {
+
+    public enum Kind {
+        INSTANCE,
+        ENVIRONMENT,
+        NUMBER,
+        STRING
+    }
+
+    // a LoxInstance and its field map
+    private static final long INSTANCE_BYTES = 144;
+
+    // an Environment and its empty map, plus an entry for each variable defined up front
+    private static final long ENVIRONMENT_BYTES = 72;
+    private static final long VARIABLE_BYTES = 32;
+
+    // a boxed Double
+    private static final long NUMBER_BYTES = 16;
+
+    // a String and its array header, before the characters
+    private static final long STRING_BYTES = 40;
+
+    private final Map<Site, Tally> sites = new ConcurrentHashMap<>();
+
+    // what a call allocates before its function runs
+    void call(LoxCallable callee, int line) {
+
+        if (callee instanceof LoxClass) {
+
+            LoxClass type = (LoxClass) callee;
+            record(Kind.INSTANCE, type.name, line, INSTANCE_BYTES);
+
+            // the initializer is bound to the instance, then called
+            if (type.arity() > 0 || type.initializer() != null) {
+                record(Kind.ENVIRONMENT, type.name + ".init", line, ENVIRONMENT_BYTES * 2
+                        + VARIABLE_BYTES * (type.arity() + 1));
+            }
+        } else if (callee instanceof LoxFunction) {
+            record(Kind.ENVIRONMENT, callee.toString(), line,
+                    ENVIRONMENT_BYTES + VARIABLE_BYTES * callee.arity());
+        }
+    }
+
+    // a block or loop pass inside a function, or at the top level when there is none
+    void block(Stmt.Function function) {
+
+        if (function == null) {
+            record(Kind.ENVIRONMENT, "<script>", 0, ENVIRONMENT_BYTES);
+        } else {
+            record(Kind.ENVIRONMENT, "<fn " + function.name.lexeme + ">", function.name.line,
+                    ENVIRONMENT_BYTES);
+        }
+    }
+
+    void number(int line) {
+        record(Kind.NUMBER, "number", line, NUMBER_BYTES);
+    }
+
+    void string(int line, long characters) {
+        record(Kind.STRING, "string", line, STRING_BYTES + characters);
+    }
+
+    // the sites that allocated the most bytes
+    public void print(PrintStream out, int count) {
+
+        List<Map.Entry<Site, Tally>> entries = new ArrayList<>(sites.entrySet());
+        entries.sort((left, right) -> Long.compare(right.getValue().bytes.sum(),
+                left.getValue().bytes.sum()));
+
+        out.println(String.format("%12s %10s  %-11s %5s  %s", "bytes", "objects", "kind", "line", "name"));
+        for (Map.Entry<Site, Tally> entry : entries.subList(0, Math.min(count, entries.size()))) {
+
+            Site site = entry.getKey();
+            out.println(String.format("%12d %10d  %-11s %5d  %s", entry.getValue().bytes.sum(),
+                    entry.getValue().objects.sum(), site.kind.name().toLowerCase(), site.line, site.name));
+        }
+    }
+
+    private void record(Kind kind, String name, int line, long bytes) {
+
+        Tally tally = sites.computeIfAbsent(new Site(kind, name, line), key -> new Tally());
+        tally.objects.increment();
+        tally.bytes.add(bytes);
+    }
+
+    private static class Site {
+
+        final Kind kind;
+        final String name;
+        final int line;
+
+        Site(Kind kind, String name, int line) {
+            this.kind = kind;
+            this.name = name;
+            this.line = line;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            if (!(other instanceof Site)) {
+                return false;
+            }
+
+            Site site = (Site) other;
+            return kind == site.kind && line == site.line && name.equals(site.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, name, line);
+        }
+    }
+
+    private static class Tally {
+
+        final LongAdder objects = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+}
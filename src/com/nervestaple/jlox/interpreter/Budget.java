@@ -0,0 +1,79 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.module.CompileStats;
+import com.nervestaple.jlox.scanner.Token;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// limits on the steps (loop passes and calls), time and allocation a script gets, checked every
+// CHECK_INTERVAL steps so it may run a little past one before it's stopped
+public class Budget {
+
+    public enum Limit {
+        STEPS,
+        TIME,
+        ALLOCATION
+    }
+
+    static final int CHECK_INTERVAL = 1024;
+
+    // zero for no limit
+    private final long steps;
+    private final long timeNanos;
+    private final long allocatedBytes;
+
+    public Budget(long steps, Duration time, long allocatedBytes) {
+        this.steps = steps;
+        this.timeNanos = time == null ? 0 : time.toNanos();
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    // the budget for one run, started now
+    Meter start() {
+        return new Meter();
+    }
+
+    class Meter {
+
+        private final AtomicLong steps = new AtomicLong();
+        private final long started = System.nanoTime();
+        private final Thread thread = Thread.currentThread();
+        private final long allocated = allocatedBytes();
+
+        // how many steps an interpreter takes between checks
+        int interval() {
+
+            if (Budget.this.steps > 0 && Budget.this.steps < CHECK_INTERVAL) {
+                return (int) Budget.this.steps;
+            }
+
+            return CHECK_INTERVAL;
+        }
+
+        void check(int taken, Token token) {
+
+            if (Budget.this.steps > 0 && steps.addAndGet(taken) >= Budget.this.steps) {
+                throw new LimitError(token, Limit.STEPS,
+                        "Exceeded the limit of " + Budget.this.steps + " steps");
+            }
+
+            if (timeNanos > 0 && System.nanoTime() - started >= timeNanos) {
+                throw new LimitError(token, Limit.TIME,
+                        "Exceeded the time limit of " + timeNanos / 1_000_000 + " ms");
+            }
+
+            if (allocatedBytes > 0 && thread == Thread.currentThread()
+                    && allocatedBytes() - allocated >= allocatedBytes) {
+                throw new LimitError(token, Limit.ALLOCATION,
+                        "Exceeded the limit of " + allocatedBytes + " bytes allocated");
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+
+        long bytes = CompileStats.allocatedBytes();
+        return bytes < 0 ? 0 : bytes;
+    }
+}
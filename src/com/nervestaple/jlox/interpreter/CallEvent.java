@@ -0,0 +1,24 @@
+package com.nervestaple.jlox.interpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.nervestaple.jlox.Call")
+@Label("Lox Function Call")
+@Description("A call to a Lox function that took longer than the threshold")
+@Category("Lox")
+@Threshold("1 ms")
+@StackTrace(false)
+class CallEvent extends Event {
+
+    @Label("Function")
+    String function;
+
+    @Label("Line")
+    int line;
+}
@@ -0,0 +1,52 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.parser.Stmt;
+
+import java.util.Arrays;
+
+// the Lox functions an interpreter is in, innermost last; a sampler reading it from another thread
+// sees how it was at some recent point
+public class CallStack {
+
+    private volatile Stmt.Function[] functions = new Stmt.Function[64];
+    private volatile int depth;
+
+    void push(Stmt.Function function) {
+
+        Stmt.Function[] functions = this.functions;
+        if (depth == functions.length) {
+            functions = Arrays.copyOf(functions, depth * 2);
+            this.functions = functions;
+        }
+
+        functions[depth] = function;
+        depth = depth + 1;
+    }
+
+    void pop() {
+        depth = depth - 1;
+    }
+
+    // drops every function above the given depth, for when pops were skipped
+    void unwind(int depth) {
+        this.depth = depth;
+    }
+
+    // the innermost function, or null outside of any
+    public Stmt.Function top() {
+
+        int depth = this.depth;
+        return depth == 0 ? null : functions[depth - 1];
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    // copies the current functions, outermost first
+    public Stmt.Function[] snapshot() {
+
+        Stmt.Function[] functions = this.functions;
+        return Arrays.copyOf(functions, Math.min(depth, functions.length));
+    }
+}
@@ -0,0 +1,49 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.parser.Expr;
+import com.nervestaple.jlox.parser.Stmt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// execution counts of each node and calls of each function for one run, including its tasks
+public class Counters {
+
+    // nodes are compared by identity, and modules shared with other contexts count separately in each
+    private final Map<Object, LongAdder> executions = new ConcurrentHashMap<>();
+    private final Map<Stmt.Function, LongAdder> calls = new ConcurrentHashMap<>();
+
+    void executed(Stmt stmt) {
+        executions.computeIfAbsent(stmt, key -> new LongAdder()).increment();
+    }
+
+    void executed(Expr expr) {
+        executions.computeIfAbsent(expr, key -> new LongAdder()).increment();
+    }
+
+    void called(Stmt.Function function) {
+        calls.computeIfAbsent(function, key -> new LongAdder()).increment();
+    }
+
+    public long executions(Stmt stmt) {
+        return sum(executions.get(stmt));
+    }
+
+    public long executions(Expr expr) {
+        return sum(executions.get(expr));
+    }
+
+    public long calls(Stmt.Function function) {
+
+        return sum(calls.get(function));
+    }
+
+    public Iterable<Stmt.Function> functions() {
+        return calls.keySet();
+    }
+
+    private static long sum(LongAdder count) {
+        return count == null ? 0 : count.sum();
+    }
+}
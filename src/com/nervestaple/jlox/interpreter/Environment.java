@@ -4,61 +4,208 @@ import com.nervestaple.jlox.scanner.Token;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Environment {
 
+    // the value of a cell whose variable isn't defined, i.e. after the environment was cleared
+    private static final Object UNDEFINED = new Object();
+
+    // stands in for nil in local variables, which may be kept in a map that can't hold null
+    private static final Object NIL = new Object();
+
     public final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
+
+    // the top-level environment of the module this environment belongs to
+    public final Environment global;
+
+    // a read-only environment that global lookups fall back to
+    private final Environment shared;
+
+    // local variables, global environments keep theirs in cells instead
+    private Map<String, Object> values;
+
+    // true once a closure over this environment exists, which another task may call
+    private boolean captured;
+
+    // a global's cell never changes, so a variable expression can keep the one it found;
+    // tasks on other threads may copy in shared values at the same time
+    private final Map<String, Cell> cells;
+
+    private boolean frozen;
 
     public Environment() {
-        enclosing = null;
+        this.enclosing = null;
+        this.global = this;
+        this.shared = null;
+        this.values = null;
+        this.cells = new ConcurrentHashMap<>();
     }
 
     public Environment(Environment enclosing) {
         this.enclosing = enclosing;
+        this.global = enclosing.global;
+        this.shared = null;
+        this.values = new HashMap<>();
+        this.cells = null;
+    }
+
+    private Environment(Environment enclosing, Environment shared) {
+        this.enclosing = enclosing;
+        this.global = this;
+        this.shared = shared;
+        this.values = null;
+        this.cells = new ConcurrentHashMap<>();
+    }
+
+    // a global environment that reads through to the shared one, copying each value it reads
+    public static Environment over(Environment shared) {
+        return new Environment(null, shared);
     }
 
     public void define(String name, Object value)  {
-        values.put(name, value);
+
+        if (cells == null) {
+            values.put(name, value == null ? NIL : value);
+            return;
+        }
+
+        if (frozen) {
+            throw new UnsupportedOperationException("Cannot define \"" + name + "\" in a frozen environment");
+        }
+
+        // redefining a global reuses its cell, so expressions that kept it see the new value
+        Cell cell = cells.putIfAbsent(name, new Cell(this, value));
+        if (cell != null) {
+            cell.value = value;
+        }
+    }
+
+    public void defineAll(Environment other) {
+
+        if (other.cells == null) {
+            other.values.forEach((name, value) -> define(name, value == NIL ? null : value));
+            return;
+        }
+
+        other.cells.forEach((name, cell) -> {
+            if (cell.isDefined()) {
+                define(name, cell.value);
+            }
+        });
+    }
+
+    // called when a closure is created over this environment, after which other tasks may read and
+    // assign its variables while it still defines new ones, so its map must be safe to share
+    void capture() {
+
+        Environment environment = this;
+        while (environment.values != null && !environment.captured) {
+            environment.values = new ConcurrentHashMap<>(environment.values);
+            environment.captured = true;
+            environment = environment.enclosing;
+        }
+    }
+
+    public void freeze() {
+        frozen = true;
+    }
+
+    public void clear() {
+
+        if (cells == null) {
+            values.clear();
+            return;
+        }
+
+        for (Cell cell : cells.values()) {
+            cell.value = UNDEFINED;
+        }
     }
 
     public Object getAt(int distance, String name) {
-        return ancestor(distance).values.get(name);
+
+        Object value = ancestor(distance).values.get(name);
+        return value == NIL ? null : value;
     }
 
     public Object get(Token name) {
 
-        if(values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+        if (cells != null) {
+            return cell(name).value;
         }
 
-        if(enclosing != null) {
-            return enclosing.get(name);
+        if(values.containsKey(name.lexeme)) {
+            Object value = values.get(name.lexeme);
+            return value == NIL ? null : value;
         }
 
-        throw new RuntimeError(name, "Undefined variable \"" + name.lexeme + "\"");
+        return enclosing.get(name);
     }
 
     public void assignAt(int distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme, value);
+        ancestor(distance).values.put(name.lexeme, value == null ? NIL : value);
     }
 
     public void assign(Token name, Object value) {
 
-        if(values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
+        if (cells != null) {
+            assignableCell(name).value = value;
             return;
         }
 
-        if(enclosing != null) {
-            enclosing.assign(name, value);
+        if(values.containsKey(name.lexeme)) {
+            values.put(name.lexeme, value == null ? NIL : value);
             return;
         }
 
+        enclosing.assign(name, value);
+    }
+
+    // the cell of a global that is defined here or in the shared environment
+    Cell cell(Token name) {
+
+        Cell cell = cells.get(name.lexeme);
+        if (cell != null && cell.isDefined()) {
+            return cell;
+        }
+
+        // the shared environment never changes, so its value can be copied the first time it's read
+        if (shared != null && shared.isDefined(name.lexeme)) {
+
+            if (frozen) {
+                return shared.cell(name);
+            }
+
+            define(name.lexeme, shared.get(name));
+            return cells.get(name.lexeme);
+        }
+
         throw new RuntimeError(name, "Undefined variable \"" + name.lexeme + "\"");
     }
 
-    private Environment ancestor(int distance) {
+    // the cell to assign a global through, which must have been defined
+    Cell assignableCell(Token name) {
+
+        if (frozen) {
+            throw new UnsupportedOperationException("Cannot assign \"" + name.lexeme
+                    + "\" in a frozen environment");
+        }
+
+        return cell(name);
+    }
+
+    private boolean isDefined(String name) {
+
+        Cell cell = cells.get(name);
+        if (cell != null && cell.isDefined()) {
+            return true;
+        }
+
+        return shared != null && shared.isDefined(name);
+    }
+
+    Environment ancestor(int distance) {
 
         Environment environment = this;
         for (int index = 0; index < distance; index++) {
@@ -67,4 +214,21 @@ public class Environment {
 
         return environment;
     }
+
+    // holds one global variable of the environment that owns it
+    static class Cell {
+
+        final Environment owner;
+        Object value;
+
+        Cell(Environment owner, Object value) {
+            this.owner = owner;
+            this.value = value;
+        }
+
+        // true while the variable is defined, the cell outlives a cleared environment
+        boolean isDefined() {
+            return value != UNDEFINED;
+        }
+    }
 }
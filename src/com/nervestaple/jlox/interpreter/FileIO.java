@@ -0,0 +1,64 @@
+package com.nervestaple.jlox.interpreter;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class FileIO {
+
+    interface Operation {
+        Object run() throws IOException;
+    }
+
+    public static void defineNatives(Environment environment) {
+
+        environment.define("open", new NativeFunction("open", 2, (interpreter, arguments) -> {
+
+            String path = path(arguments.get(0), "open");
+            Object mode = LoxString.flatten(arguments.get(1));
+
+            if ("r".equals(mode)) {
+                return interpreter.created(io(() ->
+                        LoxFile.reader(path, FileChannel.open(Paths.get(path), StandardOpenOption.READ))));
+            }
+
+            if ("w".equals(mode) || "a".equals(mode)) {
+                interpreter.checkSideEffect("open a file for writing");
+
+                StandardOpenOption position = "w".equals(mode)
+                        ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND;
+                return interpreter.created(io(() -> LoxFile.writer(path, FileChannel.open(Paths.get(path),
+                        StandardOpenOption.WRITE, StandardOpenOption.CREATE, position))));
+            }
+
+            throw new RuntimeError("File mode must be \"r\", \"w\" or \"a\"");
+        }));
+
+        environment.define("mapFile", new NativeFunction("mapFile", 1, (interpreter, arguments) -> {
+
+            String path = path(arguments.get(0), "mapFile");
+            return interpreter.created(io(() ->
+                    LoxFile.mapped(path, FileChannel.open(Paths.get(path), StandardOpenOption.READ))));
+        }));
+    }
+
+    // runs a file operation, raising a Lox error if it fails
+    static Object io(Operation operation) {
+
+        try {
+            return operation.run();
+        } catch (IOException exception) {
+            throw new RuntimeError("File operation failed: " + exception);
+        }
+    }
+
+    private static String path(Object value, String name) {
+
+        if (!LoxString.isString(value)) {
+            throw new RuntimeError("The path given to " + name + " must be a string");
+        }
+
+        return value.toString();
+    }
+}
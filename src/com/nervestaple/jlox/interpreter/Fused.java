@@ -0,0 +1,143 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.parser.Expr;
+
+import java.util.Map;
+
+// fused forms of the expression shapes hot loops are made of, reading locals and constants directly
+// instead of visiting each operand
+final class Fused {
+
+    // marks an expression that was looked at and doesn't fit a fused shape
+    static final Object NONE = new Object();
+
+    private Fused() {
+    }
+
+    // a local variable or a constant
+    static final class Operand {
+
+        private static final int CONSTANT = -1;
+
+        final int distance;
+        final String name;
+        final Object constant;
+
+        private Operand(int distance, String name, Object constant) {
+            this.distance = distance;
+            this.name = name;
+            this.constant = constant;
+        }
+
+        Object get(Environment environment) {
+            return distance == CONSTANT ? constant : environment.getAt(distance, name);
+        }
+    }
+
+    // a binary operator over locals and constants, i.e. "x < n" or "a * b"
+    static final class Binary {
+
+        final Operand left;
+        final Operand right;
+
+        private Binary(Operand left, Operand right) {
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    // a local updated from itself and a local or constant, i.e. "i = i + 1"
+    static final class Update {
+
+        final int distance;
+        final Expr.Binary operation;
+        final Operand other;
+
+        private Update(int distance, Expr.Binary operation, Operand other) {
+            this.distance = distance;
+            this.operation = operation;
+            this.other = other;
+        }
+    }
+
+    // a field set on a local from a local or constant, i.e. "this.x = x"
+    static final class SetField {
+
+        final Operand object;
+        final Operand value;
+
+        private SetField(Operand object, Operand value) {
+            this.object = object;
+            this.value = value;
+        }
+    }
+
+    static Object quicken(Expr.Binary expr, Map<Expr, Integer> locals) {
+
+        Operand left = operand(expr.left, locals);
+        Operand right = operand(expr.right, locals);
+
+        // constants on both sides gain nothing
+        if (left == null || right == null || (left.distance == Operand.CONSTANT
+                && right.distance == Operand.CONSTANT)) {
+            return NONE;
+        }
+
+        return new Binary(left, right);
+    }
+
+    static Object quicken(Expr.Assign expr, Map<Expr, Integer> locals) {
+
+        Integer distance = locals.get(expr);
+        if (distance == null || !(expr.value instanceof Expr.Binary)) {
+            return NONE;
+        }
+
+        Expr.Binary operation = (Expr.Binary) expr.value;
+        if (!(operation.left instanceof Expr.Variable)
+                || !((Expr.Variable) operation.left).name.lexeme.equals(expr.name.lexeme)
+                || !distance.equals(locals.get(operation.left))) {
+            return NONE;
+        }
+
+        Operand other = operand(operation.right, locals);
+        if (other == null) {
+            return NONE;
+        }
+
+        return new Update(distance, operation, other);
+    }
+
+    static Object quicken(Expr.Set expr, Map<Expr, Integer> locals) {
+
+        Operand object = operand(expr.object, locals);
+        Operand value = operand(expr.value, locals);
+        if (object == null || value == null || object.distance == Operand.CONSTANT) {
+            return NONE;
+        }
+
+        return new SetField(object, value);
+    }
+
+    private static Operand operand(Expr expr, Map<Expr, Integer> locals) {
+
+        if (expr instanceof Expr.Literal) {
+            return new Operand(Operand.CONSTANT, null, ((Expr.Literal) expr).value);
+        }
+
+        Integer distance = locals.get(expr);
+        if (distance == null) {
+            return null;
+        }
+
+        if (expr instanceof Expr.Variable) {
+            return new Operand(distance, ((Expr.Variable) expr).name.lexeme, null);
+        }
+
+        if (expr instanceof Expr.This) {
+            return new Operand(distance, "this", null);
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,19 @@
+package com.nervestaple.jlox.interpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.nervestaple.jlox.Instance")
+@Label("Lox Instance")
+@Description("An instance of a Lox class being created, including its initializer")
+@Category("Lox")
+@StackTrace(false)
+class InstanceEvent extends Event {
+
+    @Label("Class")
+    String className;
+}
@@ -1,53 +1,319 @@
 package com.nervestaple.jlox.interpreter;
 
-import com.nervestaple.jlox.Lox;
+import com.nervestaple.jlox.ErrorReporter;
+import com.nervestaple.jlox.module.LoxModule;
+import com.nervestaple.jlox.module.ModuleLoader;
 import com.nervestaple.jlox.parser.Expr;
 import com.nervestaple.jlox.parser.Stmt;
 import com.nervestaple.jlox.scanner.Token;
 import com.nervestaple.jlox.scanner.TokenType;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
-    public final Environment global = new Environment();
-    private final Map<Expr, Integer> locals = new HashMap<>();
-    private Environment environment = global;
+    // Java stack for each level of Lox calls, with room for code that hasn't been compiled yet
+    public static final long STACK_BYTES_PER_CALL = 4096;
 
+    // calls deeper than this stop the script rather than the thread's stack, sized to fit in 8MB
+    public static final int DEFAULT_MAX_DEPTH = 2_000;
 
-    public void interpret(List<Stmt> statements) {
+    public final Environment global;
+    private final Prelude prelude;
+    private final Map<Expr, Integer> locals;
+    private final ModuleLoader modules;
+    private final Map<LoxModule, Environment> moduleGlobals;
 
-        global.define("clock", new LoxCallable() {
+    // modules this interpreter is running, an import of one of them is circular
+    private final Set<LoxModule> loading = new HashSet<>();
 
-            @Override
-            public int arity() {
-                return 0;
-            }
+    // spawned tasks that failed, reported at the end of the run if nothing awaited them
+    private final Queue<LoxFuture> failedTasks;
 
-            @Override
-            public Object call(Interpreter interpreter, List<Object> arguments) {
-                return Double.valueOf(System.currentTimeMillis() / 1000);
-            }
+    // generators of this interpreter and its tasks whose functions have started and not finished
+    private final AtomicInteger generators;
+    private final ErrorReporter reporter;
+    private final Output out;
+    private Environment environment;
 
-            @Override
-            public String toString() {
-                return "<native fn>";
-            }
-        });
+    // the environment of the innermost function call
+    private Environment frame;
+
+    // objects created by a side-effect free task, which it is still allowed to modify
+    private Set<Object> created;
+
+    // the generator whose function this interpreter is running, if any
+    private LoxGenerator.Coroutine generator;
+
+    // the Lox functions being called, and the profiler sampling them if there is one; only kept up
+    // to date while profiling or tracking allocations, as writing it on every call is costly
+    private final CallStack stack = new CallStack();
+    private Profiler profiler;
+
+    // how many calls are running in this interpreter
+    private int callDepth;
+
+    // whether slow calls and instantiations are recorded for JFR, checked once per run since even a disabled event costs
+    // an allocation and several calls
+    private boolean recordCalls;
+    boolean recordInstances;
+
+    // counts executions of each node and calls of each function when set
+    private Counters counters;
+
+    // tallies allocations by site when set
+    private Allocations allocations;
+
+    // activity not yet added to the shared metrics, which would be contended if updated every time
+    private long calls;
+    private long environments;
+    long instances;
+
+    // activity already added to the shared metrics
+    private long publishedCalls;
+    private long publishedEnvironments;
+    private long publishedInstances;
+
+    // stops the script once it has done too much, when set
+    private Budget.Meter meter;
+
+    // steps left until the budget is next checked
+    private int steps = Budget.CHECK_INTERVAL;
+
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+    // how many blocks and function bodies are running, and the most there have been
+    private int depth;
+    private int peakDepth;
+
+    public Interpreter(Prelude prelude, ModuleLoader modules, ErrorReporter reporter,
+                       Output out) {
+        this.prelude = prelude;
+        this.global = Environment.over(prelude.environment);
+        this.environment = global;
+        this.locals = new ConcurrentHashMap<>(prelude.locals);
+        this.modules = modules;
+        this.moduleGlobals = new ConcurrentHashMap<>();
+        this.failedTasks = new ConcurrentLinkedQueue<>();
+        this.generators = new AtomicInteger();
+        this.reporter = reporter;
+        this.out = out;
+    }
+
+    // shares everything but the current environment, so a task can run on another thread
+    private Interpreter(Interpreter parent) {
+        this.prelude = parent.prelude;
+        this.global = parent.global;
+        this.environment = parent.global;
+        this.locals = parent.locals;
+        this.modules = parent.modules;
+        this.moduleGlobals = parent.moduleGlobals;
+        this.failedTasks = parent.failedTasks;
+        this.generators = parent.generators;
+        this.reporter = parent.reporter;
+        this.out = parent.out;
+        this.created = parent.created;
+        this.profiler = parent.profiler;
+        this.counters = parent.counters;
+        this.allocations = parent.allocations;
+        this.meter = parent.meter;
+        this.maxDepth = parent.maxDepth;
+        this.recordCalls = parent.recordCalls;
+        this.recordInstances = parent.recordInstances;
+
+        if (profiler != null) {
+            profiler.register(stack, false);
+        }
+    }
+
+    public Interpreter fork() {
+
+        out.share();
+        return new Interpreter(this);
+    }
+
+    // a task interpreter that refuses side effects visible outside of the calls it makes
+    public Interpreter forkPure() {
+
+        Interpreter task = new Interpreter(this);
+        task.created = Collections.newSetFromMap(new IdentityHashMap<>());
+        return task;
+    }
+
+    // the interpreter a generator's function runs in, on a task of its own
+    Interpreter forkGenerator(LoxGenerator.Coroutine generator) {
+
+        Interpreter task = fork();
+        task.generator = generator;
+        return task;
+    }
+
+    AtomicInteger generators() {
+        return generators;
+    }
+
+    // samples this interpreter and every task forked from it from now on
+    public void profile(Profiler profiler) {
+
+        this.profiler = profiler;
+        profiler.register(stack, true);
+    }
+
+    // counts executions in this interpreter and every task forked from it from now on
+    public void count(Counters counters) {
+        this.counters = counters;
+    }
+
+    // limits what runs from now on, and tasks forked from it, to a fresh budget
+    public void limit(Budget budget) {
+
+        meter = budget == null ? null : budget.start();
+        steps = meter == null ? Budget.CHECK_INTERVAL : meter.interval();
+    }
+
+    // how deep Lox calls may nest, in this interpreter and tasks forked from it from now on
+    public void maxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    // the deepest calls can nest on a thread with this much stack
+    public static int maxDepthFor(long stackBytes) {
+        return (int) Math.min(Integer.MAX_VALUE, stackBytes / STACK_BYTES_PER_CALL);
+    }
+
+    // tallies allocations in this interpreter and every task forked from it from now on
+    public void track(Allocations allocations) {
+        this.allocations = allocations;
+    }
+
+    // how many functions this interpreter has called, not counting forked tasks
+    public long calls() {
+        return publishedCalls + calls;
+    }
+
+    public long environments() {
+        return publishedEnvironments + environments;
+    }
+
+    public long instances() {
+        return publishedInstances + instances;
+    }
+
+    // the deepest blocks and function bodies have nested since the last time this was asked
+    public int takePeakDepth() {
+
+        int peak = peakDepth;
+        peakDepth = depth;
+        return peak;
+    }
+
+    public boolean isPure() {
+        return created != null;
+    }
+
+    public <T> T created(T object) {
+
+        if (created != null) {
+            created.add(object);
+        }
+
+        return object;
+    }
+
+    public void checkMutable(Object object, Token token) {
+
+        if (created != null && !created.contains(object)) {
+            throw new RuntimeError(token, "Cannot modify " + object
+                    + " from a side-effect free function");
+        }
+    }
+
+    public void checkSideEffect(String operation) {
+
+        if (created != null) {
+            throw new RuntimeError("Cannot " + operation + " from a side-effect free function");
+        }
+    }
+
+    // runs a script's module, which its imports can't import again
+    public void interpret(LoxModule module) {
+
+        loading.add(module);
+        try {
+            resolve(module.locals);
+            interpret(module.statements);
+        } finally {
+            loading.remove(module);
+        }
+    }
+
+    public void interpret(List<Stmt> statements) {
 
+        recordCalls = new CallEvent().isEnabled();
+        recordInstances = new InstanceEvent().isEnabled();
         try {
             for (Stmt statement : statements) {
                 execute(statement);
             }
         } catch (RuntimeError error) {
-            Lox.runtimeError(error);
+
+            LoxMetrics.INSTANCE.runtimeErrors.increment();
+            RuntimeErrorEvent event = new RuntimeErrorEvent();
+            if (event.isEnabled()) {
+                event.message = error.getMessage();
+                event.line = error.token == null ? 0 : error.token.line;
+                event.commit();
+            }
+
+            // the error should follow whatever was printed before it
+            out.flush();
+            reporter.runtimeError(error);
+        } finally {
+            out.flush();
+            publishMetrics();
+            reportFailedTasks();
+        }
+    }
+
+    // tasks report errors to whoever awaits them, so this catches those that nothing will
+    void watch(LoxFuture future) {
+        future.onFailure(failedTasks::add);
+    }
+
+    private void reportFailedTasks() {
+
+        LoxFuture future;
+        while ((future = failedTasks.poll()) != null) {
+
+            RuntimeError error = future.unobservedError();
+            if (error != null) {
+                reporter.runtimeError(error);
+            }
         }
     }
 
+    public void flush() {
+        out.flush();
+    }
+
     private void execute(Stmt stmt) {
+
+        if (counters != null) {
+            counters.executed(stmt);
+        }
+
         stmt.accept(this);
     }
 
@@ -61,6 +327,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Void visit(Stmt.Function stmt) {
 
+        environment.capture();
         LoxFunction function = new LoxFunction(stmt, environment, false);
         environment.define(stmt.name.lexeme, function);
         return null;
@@ -78,11 +345,92 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visit(Stmt.Import stmt) {
+
+        LoxModule module = modules.moduleFor(stmt, reporter);
+        if (module == null || !module.errors.isEmpty()) {
+            throw new RuntimeError(stmt.path, "Cannot import a module that has errors");
+        }
+
+        if (loading.contains(module)) {
+            throw new RuntimeError(stmt.path, "Circular import of \"" + module.path.getFileName() + "\"");
+        }
+
+        // each module runs once, in its own global environment
+        Environment exports = moduleGlobals.get(module);
+        if (exports == null) {
+            exports = Environment.over(prelude.environment);
+            moduleGlobals.put(module, exports);
+
+            loading.add(module);
+            try {
+                resolve(module.locals);
+                executeBlock(module.statements, exports);
+            } catch (RuntimeError error) {
+
+                // a module that failed part way runs again the next time it's imported
+                moduleGlobals.remove(module, exports);
+                throw error;
+            } finally {
+                loading.remove(module);
+            }
+        }
+
+        environment.defineAll(exports);
+        return null;
+    }
+
     @Override
     public Void visit(Stmt.Print stmt) {
 
+        checkSideEffect("print");
+
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        out.println(value);
+        return null;
+    }
+
+    @Override
+    public Void visit(Stmt.Yield stmt) {
+
+        Object value = null;
+        if (stmt.value != null) {
+            value = evaluate(stmt.value);
+        }
+
+        generator.yield(value);
+        return null;
+    }
+
+    @Override
+    public Void visit(Stmt.ForIn stmt) {
+
+        Object iterable = evaluate(stmt.iterable);
+        if (!(iterable instanceof LoxIterable)) {
+            throw new RuntimeError(stmt.name, "Can only loop over lists, maps, files and generators");
+        }
+
+        Iterator<Object> iterator = ((LoxIterable) iterable).iterator(this, stmt.name);
+        try {
+            while (iterator.hasNext()) {
+
+                if (allocations != null) {
+                    allocations.block(stack.top());
+                }
+
+                // each pass gets its own variable, so closures capture the value of that pass
+                Environment pass = new Environment(environment);
+                pass.define(stmt.name.lexeme, iterator.next());
+                executeBlock(Collections.singletonList(stmt.body), pass);
+                step(stmt.name);
+            }
+        } finally {
+            if (iterator instanceof AutoCloseable) {
+                close((AutoCloseable) iterator);
+            }
+        }
+
         return null;
     }
 
@@ -102,6 +450,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
         while (isTruthy(evaluate(stmt.condition))) {
             execute(stmt.body);
+            step(stmt.keyword);
         }
 
         return null;
@@ -110,51 +459,105 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Object visit(Expr.Binary expr) {
 
-        Object left = evaluate(expr.left);
-        Object right = evaluate(expr.right);
+        Object fused = expr.fused;
+        if (fused == null) {
+            fused = expr.fused = Fused.quicken(expr, locals);
+        }
+
+        // counting needs every operand visited
+        if (fused != Fused.NONE && counters == null) {
+
+            Fused.Binary binary = (Fused.Binary) fused;
+            return binary(expr, binary.left.get(environment), binary.right.get(environment));
+        }
+
+        return binary(expr, evaluate(expr.left), evaluate(expr.right));
+    }
+
+    private Object binary(Expr.Binary expr, Object left, Object right) {
 
         switch (expr.operator.type) {
 
             case MINUS:
                 checkNumberOperand(expr.operator, left, right);
-                return (double) left - (double) right;
+
+                if (left instanceof Long && right instanceof Long) {
+                    return number(Numbers.subtract((long) left, (long) right), expr.operator);
+                }
+
+                return number(Numbers.toDouble(left) - Numbers.toDouble(right), expr.operator);
             case SLASH:
                 checkNumberOperand(expr.operator, left, right);
 
-                if((double) right == 0) {
+                if(Numbers.toDouble(right) == 0) {
                     throw new RuntimeError(expr.operator, "Cannot divide by zero");
                 }
 
-                return (double) left / (double) right;
+                if (left instanceof Long && right instanceof Long) {
+                    return number(Numbers.divide((long) left, (long) right), expr.operator);
+                }
+
+                return number(Numbers.toDouble(left) / Numbers.toDouble(right), expr.operator);
             case STAR:
                 checkNumberOperand(expr.operator, left, right);
-                return (double) left * (double) right;
+
+                if (left instanceof Long && right instanceof Long) {
+                    return number(Numbers.multiply((long) left, (long) right), expr.operator);
+                }
+
+                return number(Numbers.toDouble(left) * Numbers.toDouble(right), expr.operator);
             case PLUS:
-                if(left instanceof Double && right instanceof Double) {
-                    return (double) left + (double) right;
+                if (left instanceof Long && right instanceof Long) {
+                    return number(Numbers.add((long) left, (long) right), expr.operator);
                 }
 
-                if(left instanceof String && right instanceof String) {
-                    return (String) left + (String) right;
+                if(Numbers.isNumber(left) && Numbers.isNumber(right)) {
+                    return number(Numbers.toDouble(left) + Numbers.toDouble(right), expr.operator);
                 }
 
-                if(left instanceof String || right instanceof String) {
-                    return stringify(left) + stringify(right);
+                if(LoxString.isString(left) || LoxString.isString(right)) {
+
+                    Object result = LoxString.concat(LoxString.isString(left) ? left : stringify(left), right);
+                    if (allocations != null) {
+                        allocations.string(expr.operator.line, length(result) - length(left));
+                    }
+
+                    return result;
                 }
 
                 throw new RuntimeError(expr.operator, "Operands must be two numbers or strings");
             case GREATER:
                 checkNumberOperand(expr.operator, left, right);
-                return (double) left > (double) right;
+
+                if (left instanceof Long && right instanceof Long) {
+                    return (long) left > (long) right;
+                }
+
+                return Numbers.toDouble(left) > Numbers.toDouble(right);
             case GREATER_EQUAL:
                 checkNumberOperand(expr.operator, left, right);
-                return (double) left >= (double) right;
+
+                if (left instanceof Long && right instanceof Long) {
+                    return (long) left >= (long) right;
+                }
+
+                return Numbers.toDouble(left) >= Numbers.toDouble(right);
             case LESS:
                 checkNumberOperand(expr.operator, left, right);
-                return (double) left < (double) right;
+
+                if (left instanceof Long && right instanceof Long) {
+                    return (long) left < (long) right;
+                }
+
+                return Numbers.toDouble(left) < Numbers.toDouble(right);
             case LESS_EQUAL:
                 checkNumberOperand(expr.operator, left, right);
-                return (double) left <= (double) right;
+
+                if (left instanceof Long && right instanceof Long) {
+                    return (long) left <= (long) right;
+                }
+
+                return Numbers.toDouble(left) <= Numbers.toDouble(right);
             case BANG_EQUAL:
                 return !isEqual(left, right);
             case EQUAL_EQUAL:
@@ -184,15 +587,46 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                     + " arguments but found " + arguments.size());
         }
 
-        return function.call(this, arguments);
+        if (allocations != null) {
+            allocations.call(function, expr.paren.line);
+        }
+
+        // finally blocks unwinding a stack overflow may run out of stack themselves, so the state
+        // they restore is kept here too
+        Environment previousEnvironment = this.environment;
+        Environment previousFrame = this.frame;
+        int previousCallDepth = this.callDepth;
+        int previousDepth = this.depth;
+        int previousStackDepth = stack.depth();
+
+        try {
+            return function.call(this, arguments);
+        } catch (RuntimeError error) {
+
+            // natives don't know where they were called from
+            if (error.token == null) {
+                throw new RuntimeError(expr.paren, error.getMessage());
+            }
+
+            throw error;
+        } catch (StackOverflowError error) {
+
+            // the thread's stack ran out before the depth limit was reached
+            this.environment = previousEnvironment;
+            this.frame = previousFrame;
+            this.callDepth = previousCallDepth;
+            this.depth = previousDepth;
+            stack.unwind(previousStackDepth);
+            throw new RuntimeError(expr.paren, "Stack overflow");
+        }
     }
 
     @Override
     public Object visit(Expr.Get expr) {
 
         Object object = evaluate(expr.object);
-        if (object instanceof LoxInstance) {
-            return ((LoxInstance) object).get(expr.name);
+        if (object instanceof LoxObject) {
+            return ((LoxObject) object).get(expr.name);
         }
 
         throw new RuntimeError(expr.name, "Only class instances have properties");
@@ -203,6 +637,46 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return evaluate(expr.expression);
     }
 
+    @Override
+    public Object visit(Expr.Index expr) {
+
+        Object object = evaluate(expr.object);
+        Object index = evaluate(expr.index);
+
+        if (object instanceof LoxList) {
+            return ((LoxList) object).get(index, expr.bracket);
+        }
+
+        if (object instanceof LoxMap) {
+            return ((LoxMap) object).get(index);
+        }
+
+        throw new RuntimeError(expr.bracket, "Only lists and maps can be indexed");
+    }
+
+    @Override
+    public Object visit(Expr.SetIndex expr) {
+
+        Object object = evaluate(expr.object);
+        Object index = evaluate(expr.index);
+        Object value = evaluate(expr.value);
+
+        if (object instanceof LoxList) {
+            checkMutable(object, expr.bracket);
+
+            ((LoxList) object).set(index, expr.bracket, value);
+            return value;
+        }
+
+        if (object instanceof LoxMap) {
+            checkMutable(object, expr.bracket);
+            ((LoxMap) object).put(index, value);
+            return value;
+        }
+
+        throw new RuntimeError(expr.bracket, "Only lists and maps can be indexed");
+    }
+
     @Override
     public Object visit(Expr.Literal expr) {
         return expr.value;
@@ -229,13 +703,30 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Object visit(Expr.Set expr) {
 
-        Object object = evaluate(expr.object);
+        Object fused = expr.fused;
+        if (fused == null) {
+            fused = expr.fused = Fused.quicken(expr, locals);
+        }
+
+        if (fused != Fused.NONE && counters == null) {
+
+            Fused.SetField set = (Fused.SetField) fused;
+            return setField(expr, set.object.get(environment), set.value);
+        }
+
+        return setField(expr, evaluate(expr.object), null);
+    }
+
+    // the value is evaluated after the object is checked, from the fused operand if there is one
+    private Object setField(Expr.Set expr, Object object, Fused.Operand operand) {
 
         if (!(object instanceof LoxInstance)) {
             throw new RuntimeError(expr.name, "Only instances have fields");
         }
 
-        Object value = evaluate(expr.value);
+        checkMutable(object, expr.name);
+
+        Object value = operand == null ? evaluate(expr.value) : operand.get(environment);
         ((LoxInstance) object).set(expr.name, value);
         return value;
     }
@@ -271,7 +762,12 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
                 return !isTruthy(right);
             case MINUS:
                 checkNumberOperand(expr.operator, right);
-                return - (double) right;
+
+                if (right instanceof Long) {
+                    return number(Numbers.negate((long) right), expr.operator);
+                }
+
+                return number(- (double) right, expr.operator);
         }
 
         return null;
@@ -279,7 +775,21 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     @Override
     public Object visit(Expr.Variable expr) {
-        return lookupVariable(expr.name, expr);
+
+        // a global read here before, from the same global environment, is a field read away
+        Environment.Cell cell = (Environment.Cell) expr.cell;
+        if (cell != null && cell.owner == environment.global && cell.isDefined()) {
+            return cell.value;
+        }
+
+        Integer distance = locals.get(expr);
+        if (distance != null) {
+            return environment.getAt(distance, expr.name.lexeme);
+        }
+
+        cell = environment.global.cell(expr.name);
+        expr.cell = cell;
+        return cell.value;
     }
 
     @Override
@@ -297,12 +807,43 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Object visit(Expr.Assign expr) {
 
+        Object fused = expr.fused;
+        if (fused == null) {
+            fused = expr.fused = Fused.quicken(expr, locals);
+        }
+
+        // side-effect free functions check where each assignment goes
+        if (fused != Fused.NONE && counters == null && created == null) {
+
+            Fused.Update update = (Fused.Update) fused;
+            Environment target = environment.ancestor(update.distance);
+            Object value = binary(update.operation, target.getAt(0, expr.name.lexeme),
+                    update.other.get(environment));
+            target.assignAt(0, expr.name, value);
+            return value;
+        }
+
         Object value = evaluate(expr.value);
+
+        Environment.Cell cell = (Environment.Cell) expr.cell;
+        if (cell != null && created == null && cell.owner == environment.global && cell.isDefined()) {
+            cell.value = value;
+            return value;
+        }
+
         Integer distance = locals.get(expr);
+
+        if (created != null && !isInFrame(distance)) {
+            throw new RuntimeError(expr.name, "Cannot assign to \"" + expr.name.lexeme
+                    + "\" from a side-effect free function");
+        }
+
         if (distance != null) {
             environment.assignAt(distance, expr.name, value);
         } else {
-            global.assign(expr.name, value);
+            cell = environment.global.assignableCell(expr.name);
+            cell.value = value;
+            expr.cell = cell;
         }
 
         return value;
@@ -311,6 +852,10 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
     @Override
     public Void visit(Stmt.Block stmt) {
 
+        if (allocations != null) {
+            allocations.block(stack.top());
+        }
+
         executeBlock(stmt.statements, new Environment(environment));
         return null;
     }
@@ -333,6 +878,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             environment.define("super", superclass);
         }
 
+        environment.capture();
         Map<String, LoxFunction> methods = new HashMap<>();
         for (Stmt.Function method : stmt.methods) {
             LoxFunction function = new LoxFunction(method, environment,
@@ -350,13 +896,109 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
         return null;
     }
 
-    public void resolve(Expr expr, int depth) {
-        locals.put(expr, depth);
+    public void resolve(Map<Expr, Integer> resolved) {
+        locals.putAll(resolved);
+    }
+
+    // returns the interpreter to its freshly created state so it can be reused
+    public void reset() {
+
+        global.clear();
+        environment = global;
+        moduleGlobals.clear();
+        locals.clear();
+        locals.putAll(prelude.locals);
+
+        // whoever ran before may have been profiling, counting or limiting what ran
+        if (profiler != null) {
+            profiler.unregister(stack);
+            profiler = null;
+        }
+        counters = null;
+        allocations = null;
+        limit(null);
+        maxDepth = DEFAULT_MAX_DEPTH;
+    }
+
+    public void forget(Map<Expr, Integer> resolved) {
+
+        for (Expr expr : resolved.keySet()) {
+            locals.remove(expr);
+        }
+    }
+
+    protected void executeFunction(Stmt.Function function, Environment environment) {
+
+        step(function.name);
+
+        // the call site reports this, like an error from a native
+        if (callDepth >= maxDepth) {
+            throw new RuntimeError("Stack overflow, calls are nested more than " + maxDepth + " deep");
+        }
+
+        // kept apart so a plain call stays small enough to be inlined by the JIT
+        if (profiler != null || allocations != null || counters != null || recordCalls) {
+            executeTracked(function, environment);
+            return;
+        }
+
+        Environment previous = this.frame;
+        callDepth++;
+        calls++;
+
+        try {
+            this.frame = environment;
+            executeBlock(function.body, environment);
+        } finally {
+            this.frame = previous;
+            callDepth--;
+        }
+    }
+
+    private void executeTracked(Stmt.Function function, Environment environment) {
+
+        Environment previous = this.frame;
+        stack.push(function);
+        callDepth++;
+        calls++;
+
+        if (counters != null) {
+            counters.called(function);
+        }
+
+        CallEvent event = null;
+        if (recordCalls) {
+            event = new CallEvent();
+            event.begin();
+        }
+
+        try {
+            this.frame = environment;
+            executeBlock(function.body, environment);
+        } finally {
+            this.frame = previous;
+            callDepth--;
+            stack.pop();
+
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.function = function.name.lexeme;
+                    event.line = function.name.line;
+                    event.commit();
+                }
+            }
+        }
     }
 
     protected void executeBlock(List<Stmt> statements, Environment environment) {
 
         Environment previous = this.environment;
+        environments++;
+
+        if (++depth > peakDepth) {
+            peakDepth = depth;
+        }
 
         try {
             this.environment = environment;
@@ -366,6 +1008,59 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             }
         } finally {
             this.environment = previous;
+            depth--;
+        }
+    }
+
+    // counts a loop pass or call against the budget, if there is one, checking it only once in a while
+    private void step(Token token) {
+
+        if (meter != null && --steps == 0) {
+            steps = meter.interval();
+            meter.check(steps, token);
+        }
+    }
+
+    // arithmetic results are boxed, apart from small whole numbers, which is worth knowing when tracking allocations
+    private Object number(Object value, Token operator) {
+
+        if (allocations != null) {
+            allocations.number(operator.line);
+        }
+
+        return value;
+    }
+
+    private static int length(Object value) {
+
+        if (value instanceof LoxString) {
+            return ((LoxString) value).length();
+        }
+
+        return value instanceof String ? ((String) value).length() : 0;
+    }
+
+    // called when a run or a task finishes rather than as calls return, as a check on every return
+    // kept the JIT from compiling calls well
+    void publishMetrics() {
+
+        LoxMetrics.INSTANCE.published(calls, environments, instances);
+        publishedCalls += calls;
+        publishedEnvironments += environments;
+        publishedInstances += instances;
+        calls = 0;
+        environments = 0;
+        instances = 0;
+    }
+
+    private static void close(AutoCloseable iterator) {
+
+        try {
+            iterator.close();
+        } catch (RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new RuntimeError("Could not finish loop: " + exception);
         }
     }
 
@@ -376,24 +1071,41 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             return environment.getAt(distance, name.lexeme);
         }
 
-        return global.get(name);
+        return environment.global.get(name);
     }
 
-    private String stringify(Object object) {
+    // true when a variable at this distance belongs to the current function call
+    private boolean isInFrame(Integer distance) {
 
-        if (object == null) {
-            return "nil";
+        if (distance == null || frame == null) {
+            return false;
         }
 
-        if (object instanceof Double) {
-            String text = object.toString();
+        Environment current = environment;
+        for (int index = 0; index < distance; index++) {
 
-            // suppress ".0" when displaying Double values
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
+            if (current == frame) {
+                return false;
             }
 
-            return text;
+            current = current.enclosing;
+        }
+
+        return true;
+    }
+
+    static String stringify(Object object) {
+
+        if (object == null) {
+            return "nil";
+        }
+
+        if (object instanceof Long) {
+            return NumberFormatter.format((long) object);
+        }
+
+        if (object instanceof Double) {
+            return NumberFormatter.format((double) object);
         }
 
         return object.toString();
@@ -401,7 +1113,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     private void checkNumberOperand(Token operator, Object operand) {
 
-        if (operand instanceof Double) {
+        if (Numbers.isNumber(operand)) {
             return;
         }
 
@@ -410,7 +1122,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
     private void checkNumberOperand(Token operator, Object left, Object right) {
 
-        if (left instanceof Double && right instanceof Double) {
+        if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
             return;
         }
 
@@ -427,14 +1139,24 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
             return false;
         }
 
-        return a.equals(b);
+        // a whole number may be a Long on one side and a Double on the other
+        if (Numbers.isNumber(a) && Numbers.isNumber(b)) {
+            return Numbers.equal(a, b);
+        }
+
+        return LoxString.flatten(a).equals(LoxString.flatten(b));
     }
 
     private Object evaluate(Expr expr) {
+
+        if (counters != null) {
+            counters.executed(expr);
+        }
+
         return expr.accept(this);
     }
 
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
 
         if (object == null) {
             return false;
@@ -0,0 +1,14 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.scanner.Token;
+
+// stops a script that has used up its budget, see Budget
+public class LimitError extends RuntimeError {
+
+    public final Budget.Limit limit;
+
+    LimitError(Token token, Budget.Limit limit, String message) {
+        super(token, message);
+        this.limit = limit;
+    }
+}
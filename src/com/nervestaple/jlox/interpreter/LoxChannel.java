@@ -0,0 +1,48 @@
+package com.nervestaple.jlox.interpreter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+
+public class LoxChannel {
+
+    // queues can't hold null, so nil travels as this
+    private static final Object NIL = new Object();
+
+    private final BlockingQueue<Object> queue;
+
+    public LoxChannel(int capacity) {
+
+        if (capacity == 0) {
+            queue = new SynchronousQueue<>();
+        } else {
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    public void send(Object value) {
+
+        try {
+            queue.put(value == null ? NIL : value);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError("Interrupted while sending on a channel");
+        }
+    }
+
+    public Object receive() {
+
+        try {
+            Object value = queue.take();
+            return value == NIL ? null : value;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError("Interrupted while receiving from a channel");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<channel>";
+    }
+}
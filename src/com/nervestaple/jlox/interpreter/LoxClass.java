@@ -27,6 +27,10 @@ public class LoxClass implements LoxCallable {
         return null;
     }
 
+    LoxFunction initializer() {
+        return methods.get("init");
+    }
+
     @Override
     public int arity() {
         LoxFunction initializer = methods.get("init");
@@ -39,13 +43,26 @@ public class LoxClass implements LoxCallable {
 
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
-        LoxInstance instance = new LoxInstance(this);
+
+        InstanceEvent event = null;
+        if (interpreter.recordInstances) {
+            event = new InstanceEvent();
+            event.begin();
+        }
+
+        LoxInstance instance = interpreter.created(new LoxInstance(this));
+        interpreter.instances++;
 
         LoxFunction initializer = methods.get("init");
         if(initializer != null) {
             initializer.bind(instance).call(interpreter, arguments);
         }
 
+        if (event != null && event.shouldCommit()) {
+            event.className = name;
+            event.commit();
+        }
+
         return instance;
     }
 
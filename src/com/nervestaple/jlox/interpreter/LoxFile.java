@@ -0,0 +1,284 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.scanner.Token;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// an open file, read through a fixed window of bytes so reading it a line at a time takes the same
+// memory however large it is
+public class LoxFile implements LoxObject, LoxIterable {
+
+    private static final List<String> METHODS = List.of("readLine", "write", "close");
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // how much of a file is mapped at once
+    private static final int MAP_SIZE = 1 << 26;
+
+    private final String path;
+    private final FileChannel channel;
+    private final boolean mapped;
+    private final Writer writer;
+
+    // bytes of the file starting at windowStart, read up to its position
+    private ByteBuffer window;
+    private long windowStart;
+    private byte[] scratch = new byte[256];
+    private boolean closed;
+
+    // bound on first use
+    private NativeFunction[] methods;
+
+    private LoxFile(String path, FileChannel channel, boolean mapped, boolean writable) {
+        this.path = path;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.writer = writable ? Channels.newWriter(channel, StandardCharsets.UTF_8) : null;
+
+        if (!writable && !mapped) {
+            window = ByteBuffer.allocate(BUFFER_SIZE);
+            window.flip();
+        } else {
+            window = ByteBuffer.allocate(0);
+        }
+    }
+
+    public static LoxFile reader(String path, FileChannel channel) {
+        return new LoxFile(path, channel, false, false);
+    }
+
+    public static LoxFile mapped(String path, FileChannel channel) {
+        return new LoxFile(path, channel, true, false);
+    }
+
+    public static LoxFile writer(String path, FileChannel channel) {
+        return new LoxFile(path, channel, false, true);
+    }
+
+    // the next line without its line ending, or null at the end of the file
+    public synchronized String readLine() throws IOException {
+
+        checkOpen();
+        if (writer != null) {
+            throw new RuntimeError("File " + path + " was not opened for reading");
+        }
+
+        int from = window.position();
+        for (;;) {
+
+            for (int index = from; index < window.limit(); index++) {
+                if (window.get(index) == '\n') {
+                    String line = decode(window.position(), index);
+                    window.position(index + 1);
+                    return line;
+                }
+            }
+
+            // the rest of the window holds part of a line at most
+            from = window.remaining();
+            if (!fill()) {
+                break;
+            }
+
+            from += window.position();
+        }
+
+        if (!window.hasRemaining()) {
+            return null;
+        }
+
+        String line = decode(window.position(), window.limit());
+        window.position(window.limit());
+        return line;
+    }
+
+    public synchronized void write(String text) throws IOException {
+
+        checkOpen();
+        if (writer == null) {
+            throw new RuntimeError("File " + path + " was not opened for writing");
+        }
+
+        writer.write(text);
+    }
+
+    public synchronized void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (writer != null) {
+            writer.close();
+        } else {
+            channel.close();
+        }
+
+        window = null;
+    }
+
+    // loops over the lines that haven't been read yet
+    @Override
+    public Iterator<Object> iterator(Interpreter interpreter, Token token) {
+
+        interpreter.checkMutable(this, token);
+        return new Iterator<Object>() {
+
+            private Object line;
+
+            @Override
+            public boolean hasNext() {
+
+                if (line == null) {
+                    line = FileIO.io(() -> readLine());
+                }
+
+                return line != null;
+            }
+
+            @Override
+            public Object next() {
+
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Object next = line;
+                line = null;
+                return next;
+            }
+        };
+    }
+
+    @Override
+    public Object get(Token name) {
+
+        int index = METHODS.indexOf(name.lexeme);
+        if (index < 0) {
+            throw new RuntimeError(name, "Undefined property '" + name.lexeme + "' for file");
+        }
+
+        NativeFunction[] methods = this.methods;
+        if (methods == null) {
+            methods = new NativeFunction[METHODS.size()];
+            this.methods = methods;
+        }
+
+        NativeFunction method = methods[index];
+        if (method == null) {
+            method = bind(name.lexeme);
+            methods[index] = method;
+        }
+
+        return method;
+    }
+
+    private NativeFunction bind(String name) {
+
+        switch (name) {
+
+            case "readLine":
+                return new NativeFunction("readLine", 0, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    return FileIO.io(() -> readLine());
+                });
+            case "write":
+                return new NativeFunction("write", 1, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    return FileIO.io(() -> {
+                        write(Interpreter.stringify(arguments.get(0)));
+                        return null;
+                    });
+                });
+            case "close":
+                return new NativeFunction("close", 0, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    return FileIO.io(() -> {
+                        close();
+                        return null;
+                    });
+                });
+        }
+
+        throw new IllegalArgumentException("No method " + name);
+    }
+
+    // moves the window forward, keeping the unread bytes; false at the end of the file
+    private boolean fill() throws IOException {
+
+        if (mapped) {
+
+            long start = windowStart + window.position();
+            long remaining = channel.size() - start;
+            if (remaining <= window.remaining()) {
+                return false;
+            }
+
+            long length = Math.min(remaining, Math.max(MAP_SIZE, (long) window.remaining() * 2));
+            if (length > Integer.MAX_VALUE) {
+                throw new RuntimeError("Line in " + path + " is too long to map");
+            }
+
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            windowStart = start;
+            return true;
+        }
+
+        // a line longer than the buffer needs a bigger one
+        if (window.position() == 0 && window.limit() == window.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(window.capacity() * 2);
+            larger.put(window);
+            window = larger;
+        } else {
+            window.compact();
+        }
+
+        int read = channel.read(window);
+        window.flip();
+        return read > 0;
+    }
+
+    private String decode(int from, int to) {
+
+        if (to > from && window.get(to - 1) == '\r') {
+            to--;
+        }
+
+        int length = to - from;
+        if (window.hasArray()) {
+            return new String(window.array(), window.arrayOffset() + from, length,
+                    StandardCharsets.UTF_8);
+        }
+
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        int position = window.position();
+        window.position(from);
+        window.get(scratch, 0, length);
+        window.position(position);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void checkOpen() {
+
+        if (closed) {
+            throw new RuntimeError("File " + path + " is closed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<file " + path + ">";
+    }
+}
@@ -17,6 +17,7 @@ public class LoxFunction implements LoxCallable {
         this.closure = closure;
     }
 
+    // nothing defines or assigns in the environment holding this, so it's safe to share without capturing
     public LoxFunction bind(LoxInstance instance) {
         Environment environment = new Environment(closure);
         environment.define("this", instance);
@@ -31,13 +32,23 @@ public class LoxFunction implements LoxCallable {
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
 
+        // a function that yields runs as its values are asked for
+        if (declaration.generator) {
+            return interpreter.created(new LoxGenerator(interpreter, this, arguments));
+        }
+
+        return invoke(interpreter, arguments);
+    }
+
+    Object invoke(Interpreter interpreter, List<Object> arguments) {
+
         Environment environment = new Environment(closure);
         for (int index = 0; index < declaration.params.size(); index++) {
             environment.define(declaration.params.get(index).lexeme, arguments.get(index));
         }
 
         try {
-            interpreter.executeBlock(declaration.body, environment);
+            interpreter.executeFunction(declaration, environment);
         } catch (Return returnValue) {
             if (isInitializer) {
                 return closure.getAt(0, "this");
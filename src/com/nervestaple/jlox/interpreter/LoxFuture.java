@@ -0,0 +1,68 @@
+package com.nervestaple.jlox.interpreter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+public class LoxFuture {
+
+    private final CompletableFuture<Object> result;
+
+    // whether the task's error has been raised, by await or at the end of the run
+    private volatile boolean observed;
+
+    public LoxFuture(CompletableFuture<Object> result) {
+        this.result = result;
+    }
+
+    public Object await() {
+
+        observed = true;
+        try {
+            return result.join();
+        } catch (CompletionException exception) {
+
+            // errors in the task are raised where it's awaited
+            throw error(exception.getCause());
+        }
+    }
+
+    // passes this future on once its task has failed
+    void onFailure(Consumer<LoxFuture> failed) {
+        result.whenComplete((value, exception) -> {
+            if (exception != null) {
+                failed.accept(this);
+            }
+        });
+    }
+
+    // the error the task failed with if nothing has awaited it yet, and only the first time it's asked
+    RuntimeError unobservedError() {
+
+        if (observed || !result.isCompletedExceptionally()) {
+            return null;
+        }
+
+        observed = true;
+        try {
+            result.join();
+            return null;
+        } catch (CompletionException exception) {
+            return error(exception.getCause());
+        }
+    }
+
+    private static RuntimeError error(Throwable cause) {
+
+        if (cause instanceof RuntimeError) {
+            return (RuntimeError) cause;
+        }
+
+        return new RuntimeError("Task failed: " + cause);
+    }
+
+    @Override
+    public String toString() {
+        return "<future>";
+    }
+}
@@ -0,0 +1,309 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.scanner.Token;
+
+import java.lang.ref.Cleaner;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// the values of a call to a function that yields, which runs on a task of its own and waits after
+// each value until the next is asked for
+public class LoxGenerator implements LoxObject, LoxIterable {
+
+    private static final List<String> METHODS = List.of("hasNext", "next", "close");
+
+    private static final Object DONE = new Object();
+
+    // stops the functions of generators dropped before they finished, which would otherwise wait forever
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    // each running generator holds a thread the collector doesn't know about, so a script may only
+    // have this many started and not yet finished or closed
+    static final int MAX_RUNNING = 1024;
+
+    private final LoxFunction function;
+    private final Coroutine coroutine;
+    private final Cleaner.Cleanable cleanable;
+
+    private boolean buffered;
+    private Object next;
+
+    // bound on first use
+    private NativeFunction[] methods;
+
+    LoxGenerator(Interpreter interpreter, LoxFunction function, List<Object> arguments) {
+        this.function = function;
+        this.coroutine = new Coroutine(interpreter, function, arguments);
+        this.cleanable = CLEANER.register(this, coroutine::close);
+    }
+
+    public synchronized boolean hasNext() {
+
+        if (!buffered) {
+            Object value = coroutine.resume();
+            if (value != DONE) {
+                buffered = true;
+                next = value;
+            }
+        }
+
+        return buffered;
+    }
+
+    public synchronized Object next() {
+
+        if (!hasNext()) {
+            return null;
+        }
+
+        Object value = next;
+        buffered = false;
+        next = null;
+        return value;
+    }
+
+    // stops the function where it last yielded
+    public synchronized void close() {
+
+        cleanable.clean();
+        buffered = false;
+        next = null;
+    }
+
+    @Override
+    public Iterator<Object> iterator(Interpreter interpreter, Token token) {
+
+        interpreter.checkMutable(this, token);
+        return new Values();
+    }
+
+    @Override
+    public Object get(Token name) {
+
+        int index = METHODS.indexOf(name.lexeme);
+        if (index < 0) {
+            throw new RuntimeError(name, "Undefined property '" + name.lexeme + "' for generator");
+        }
+
+        NativeFunction[] methods = this.methods;
+        if (methods == null) {
+            methods = new NativeFunction[METHODS.size()];
+            this.methods = methods;
+        }
+
+        NativeFunction method = methods[index];
+        if (method == null) {
+            method = bind(name.lexeme);
+            methods[index] = method;
+        }
+
+        return method;
+    }
+
+    private NativeFunction bind(String name) {
+
+        switch (name) {
+
+            case "hasNext":
+                return new NativeFunction("hasNext", 0, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    return hasNext();
+                });
+            case "next":
+                return new NativeFunction("next", 0, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    return next();
+                });
+            case "close":
+                return new NativeFunction("close", 0, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    close();
+                    return null;
+                });
+        }
+
+        throw new IllegalArgumentException("No method " + name);
+    }
+
+    private static <T> void transfer(SynchronousQueue<T> queue, T value) {
+
+        try {
+            queue.put(value);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError("Interrupted while running a generator");
+        }
+    }
+
+    private static <T> T take(SynchronousQueue<T> queue) {
+
+        try {
+            return queue.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError("Interrupted while running a generator");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<generator " + function + ">";
+    }
+
+    private class Values implements Iterator<Object>, AutoCloseable {
+
+        @Override
+        public boolean hasNext() {
+            return LoxGenerator.this.hasNext();
+        }
+
+        @Override
+        public Object next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return LoxGenerator.this.next();
+        }
+
+        @Override
+        public void close() {
+            LoxGenerator.this.close();
+        }
+    }
+
+    // the function's side of a generator and all that its task holds on to, so a generator that
+    // is dropped can still be collected, which closes this
+    static class Coroutine {
+
+        private final LoxFunction function;
+        private final List<Object> arguments;
+        private final Interpreter interpreter;
+        private final AtomicInteger running;
+
+        // values and the end of the function travel one way, requests to continue the other
+        private final SynchronousQueue<Object> results = new SynchronousQueue<>();
+        private final SynchronousQueue<Boolean> requests = new SynchronousQueue<>();
+
+        private boolean started;
+        private boolean finished;
+
+        Coroutine(Interpreter interpreter, LoxFunction function, List<Object> arguments) {
+            this.function = function;
+            this.arguments = arguments;
+            this.interpreter = interpreter.forkGenerator(this);
+            this.running = interpreter.generators();
+        }
+
+        // runs the function to its next yield, returning the value or DONE once it has finished
+        synchronized Object resume() {
+
+            if (finished) {
+                return DONE;
+            }
+
+            if (!started) {
+                start();
+                started = true;
+                Tasks.EXECUTOR.execute(this::run);
+            } else {
+                transfer(requests, true);
+            }
+
+            Object result = take(results);
+            if (result == DONE) {
+                finish();
+                return DONE;
+            } else if (result instanceof Failed) {
+                finish();
+                throw ((Failed) result).error;
+            }
+
+            return ((Yielded) result).value;
+        }
+
+        // the function is waiting where it last yielded, and unwinds on its own once told to stop
+        synchronized void close() {
+
+            if (started && !finished) {
+                transfer(requests, false);
+                finish();
+            }
+
+            finished = true;
+        }
+
+        private void start() {
+
+            if (running.incrementAndGet() > MAX_RUNNING) {
+                running.decrementAndGet();
+                throw new RuntimeError("Cannot run more than " + MAX_RUNNING
+                        + " generators at once, close the ones that aren't needed");
+            }
+        }
+
+        private void finish() {
+            finished = true;
+            running.decrementAndGet();
+        }
+
+        // called on the generator's own task when the function yields
+        void yield(Object value) {
+
+            transfer(results, new Yielded(value));
+            if (!take(requests)) {
+                throw new Closed();
+            }
+        }
+
+        private void run() {
+
+            Object result = DONE;
+            try {
+                function.invoke(interpreter, arguments);
+            } catch (Closed closed) {
+
+                // nothing is waiting for the result of a closed generator
+                return;
+            } catch (RuntimeError error) {
+                result = new Failed(error);
+            } catch (RuntimeException | StackOverflowError error) {
+                result = new Failed(new RuntimeError("Generator failed: " + error));
+            } finally {
+                interpreter.publishMetrics();
+            }
+
+            transfer(results, result);
+        }
+    }
+
+    private static class Yielded {
+
+        final Object value;
+
+        Yielded(Object value) {
+            this.value = value;
+        }
+    }
+
+    private static class Failed {
+
+        final RuntimeError error;
+
+        Failed(RuntimeError error) {
+            this.error = error;
+        }
+    }
+
+    // unwinds the function when the generator is closed before it finishes
+    private static class Closed extends RuntimeException {
+
+        Closed() {
+            super(null, null, false, false);
+        }
+    }
+}
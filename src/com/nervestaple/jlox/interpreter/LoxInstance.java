@@ -5,7 +5,7 @@ import com.nervestaple.jlox.scanner.Token;
 import java.util.HashMap;
 import java.util.Map;
 
-public class LoxInstance {
+public class LoxInstance implements LoxObject {
 
     private LoxClass klass;
     private final Map<String, Object> fields = new HashMap<>();
@@ -14,10 +14,14 @@ public class LoxInstance {
         this.klass = klass;
     }
 
+    // field access is synchronized so instances can be shared between tasks
+    @Override
     public Object get(Token name) {
 
-        if (fields.containsKey(name.lexeme)) {
-            return fields.get(name.lexeme);
+        synchronized (fields) {
+            if (fields.containsKey(name.lexeme)) {
+                return fields.get(name.lexeme);
+            }
         }
 
         LoxFunction method = klass.findMethod(this, name.lexeme);
@@ -30,7 +34,10 @@ public class LoxInstance {
     }
 
     public void set(Token name, Object value) {
-        fields.put(name.lexeme, value);
+
+        synchronized (fields) {
+            fields.put(name.lexeme, value);
+        }
     }
 
     @Override
@@ -0,0 +1,12 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.scanner.Token;
+
+import java.util.Iterator;
+
+// a value that can be looped over with "for (var x in ...)"
+public interface LoxIterable {
+
+    // iterators that are AutoCloseable are closed when the loop exits
+    Iterator<Object> iterator(Interpreter interpreter, Token token);
+}
@@ -0,0 +1,247 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.scanner.Token;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class LoxList implements LoxObject, LoxIterable {
+
+    private static final List<String> METHODS = List.of("length", "get", "set", "push", "pop");
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    // elements are stored unboxed until something other than a number is added
+    private double[] numbers = new double[INITIAL_CAPACITY];
+    private Object[] objects;
+    private int size;
+
+    // each method is bound the first time it's used, so calling it again doesn't allocate
+    private NativeFunction[] methods;
+
+    public LoxList() {
+    }
+
+    public LoxList(List<Object> elements) {
+
+        for (Object element : elements) {
+            add(element);
+        }
+    }
+
+    // access is synchronized so lists can be shared between tasks, like instances' fields
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized Object get(int index) {
+
+        if (objects == null) {
+            return Numbers.of(numbers[index]);
+        }
+
+        return objects[index];
+    }
+
+    public synchronized void set(int index, Object value) {
+
+        if (objects == null) {
+
+            if (Numbers.isNumber(value)) {
+                numbers[index] = Numbers.toDouble(value);
+                return;
+            }
+
+            generalize();
+        }
+
+        objects[index] = value;
+    }
+
+    public synchronized void add(Object value) {
+
+        if (objects == null) {
+
+            if (Numbers.isNumber(value)) {
+                if (size == numbers.length) {
+                    numbers = Arrays.copyOf(numbers, size * 2);
+                }
+
+                numbers[size++] = Numbers.toDouble(value);
+                return;
+            }
+
+            generalize();
+        }
+
+        if (size == objects.length) {
+            objects = Arrays.copyOf(objects, size * 2);
+        }
+
+        objects[size++] = value;
+    }
+
+    public synchronized Object removeLast() {
+
+        Object value = get(size - 1);
+        size--;
+
+        if (objects != null) {
+            objects[size] = null;
+        }
+
+        return value;
+    }
+
+    // checks a Lox index and reads it under one lock, so another task can't shrink the list in between
+    public synchronized Object get(Object index, Token token) {
+        return get(index(index, token));
+    }
+
+    public synchronized void set(Object index, Token token, Object value) {
+        set(index(index, token), value);
+    }
+
+    public synchronized int index(Object value, Token token) {
+
+        if (value instanceof Long) {
+
+            long index = (long) value;
+            if (index < 0 || index >= size) {
+                throw new RuntimeError(token, "List index " + Interpreter.stringify(value)
+                        + " is out of range");
+            }
+
+            return (int) index;
+        }
+
+        if (!(value instanceof Double)) {
+            throw new RuntimeError(token, "List index must be a number");
+        }
+
+        double index = (double) value;
+        if (index != Math.floor(index) || index < 0 || index >= size) {
+            throw new RuntimeError(token, "List index " + Interpreter.stringify(value)
+                    + " is out of range");
+        }
+
+        return (int) index;
+    }
+
+    @Override
+    public Iterator<Object> iterator(Interpreter interpreter, Token token) {
+
+        return new Iterator<Object>() {
+
+            private int index;
+
+            // elements pushed while looping are included
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public Object next() {
+
+                synchronized (LoxList.this) {
+                    if (index >= size) {
+                        throw new RuntimeError(token, "List was shortened while looping over it");
+                    }
+
+                    return get(index++);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Object get(Token name) {
+
+        int index = METHODS.indexOf(name.lexeme);
+        if (index < 0) {
+            throw new RuntimeError(name, "Undefined property '" + name.lexeme + "' for list");
+        }
+
+        NativeFunction[] methods = this.methods;
+        if (methods == null) {
+            methods = new NativeFunction[METHODS.size()];
+            this.methods = methods;
+        }
+
+        NativeFunction method = methods[index];
+        if (method == null) {
+            method = bind(name.lexeme);
+            methods[index] = method;
+        }
+
+        return method;
+    }
+
+    private NativeFunction bind(String name) {
+
+        switch (name) {
+
+            case "length":
+                return new NativeFunction("length", 0, (interpreter, arguments) ->
+                        Numbers.box(size()));
+            case "get":
+                return new NativeFunction("get", 1, (interpreter, arguments) ->
+                        get(arguments.get(0), null));
+            case "set":
+                return new NativeFunction("set", 2, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    set(arguments.get(0), null, arguments.get(1));
+                    return arguments.get(1);
+                });
+            case "push":
+                return new NativeFunction("push", 1, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    add(arguments.get(0));
+                    return null;
+                });
+            case "pop":
+                return new NativeFunction("pop", 0, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+
+                    synchronized (this) {
+                        if (size == 0) {
+                            throw new RuntimeError("Cannot pop from an empty list");
+                        }
+
+                        return removeLast();
+                    }
+                });
+        }
+
+        throw new IllegalArgumentException("No method " + name);
+    }
+
+    // switches to boxed storage once the list holds something other than numbers
+    private void generalize() {
+
+        objects = new Object[numbers.length];
+        for (int index = 0; index < size; index++) {
+            objects[index] = Numbers.of(numbers[index]);
+        }
+
+        numbers = null;
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        StringBuilder builder = new StringBuilder("[");
+        for (int index = 0; index < size; index++) {
+
+            if (index > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(Interpreter.stringify(get(index)));
+        }
+
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,294 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.scanner.Token;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LoxMap implements LoxObject, LoxIterable {
+
+    private static final List<String> METHODS = List.of("size", "get", "has", "set", "remove", "keys");
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    // string keys live in an open-addressing table with linear probing
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    // replaces the table once a key that isn't a string is stored
+    private Map<Object, Object> general;
+
+    // bound on first use, like a list's methods
+    private NativeFunction[] methods;
+
+    // access is synchronized so maps can be shared between tasks, like instances' fields
+    public synchronized int size() {
+
+        if (general != null) {
+            return general.size();
+        }
+
+        return size;
+    }
+
+    public synchronized Object get(Object key) {
+
+        key = Numbers.normalize(LoxString.flatten(key));
+
+        if (general != null) {
+            return general.get(key);
+        }
+
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        int slot = find((String) key);
+        if (slot < 0) {
+            return null;
+        }
+
+        return values[slot];
+    }
+
+    public synchronized boolean has(Object key) {
+
+        key = Numbers.normalize(LoxString.flatten(key));
+
+        if (general != null) {
+            return general.containsKey(key);
+        }
+
+        return key instanceof String && find((String) key) >= 0;
+    }
+
+    public synchronized void put(Object key, Object value) {
+
+        key = Numbers.normalize(LoxString.flatten(key));
+
+        if (general == null && !(key instanceof String)) {
+            generalize();
+        }
+
+        if (general != null) {
+            general.put(key, value);
+            return;
+        }
+
+        // keep the table at most half full
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash((String) key) & mask;
+        while (keys[slot] != null) {
+
+            if (keys[slot].equals(key)) {
+                values[slot] = value;
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = (String) key;
+        values[slot] = value;
+        size++;
+    }
+
+    public synchronized boolean remove(Object key) {
+
+        key = Numbers.normalize(LoxString.flatten(key));
+
+        if (general != null) {
+            boolean present = general.containsKey(key);
+            general.remove(key);
+            return present;
+        }
+
+        if (!(key instanceof String)) {
+            return false;
+        }
+
+        int slot = find((String) key);
+        if (slot < 0) {
+            return false;
+        }
+
+        // shift later entries of the probe sequence back so lookups don't stop early
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (keys[next] != null) {
+
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        keys[hole] = null;
+        values[hole] = null;
+        size--;
+        return true;
+    }
+
+    public synchronized LoxList keys() {
+
+        LoxList list = new LoxList();
+        if (general != null) {
+            for (Object key : general.keySet()) {
+                list.add(key);
+            }
+
+            return list;
+        }
+
+        for (String key : keys) {
+            if (key != null) {
+                list.add(key);
+            }
+        }
+
+        return list;
+    }
+
+    // loops over the keys the map had when the loop started
+    @Override
+    public Iterator<Object> iterator(Interpreter interpreter, Token token) {
+        return keys().iterator(interpreter, token);
+    }
+
+    @Override
+    public Object get(Token name) {
+
+        int index = METHODS.indexOf(name.lexeme);
+        if (index < 0) {
+            throw new RuntimeError(name, "Undefined property '" + name.lexeme + "' for map");
+        }
+
+        NativeFunction[] methods = this.methods;
+        if (methods == null) {
+            methods = new NativeFunction[METHODS.size()];
+            this.methods = methods;
+        }
+
+        NativeFunction method = methods[index];
+        if (method == null) {
+            method = bind(name.lexeme);
+            methods[index] = method;
+        }
+
+        return method;
+    }
+
+    private NativeFunction bind(String name) {
+
+        switch (name) {
+
+            case "size":
+                return new NativeFunction("size", 0, (interpreter, arguments) ->
+                        Numbers.box(size()));
+            case "get":
+                return new NativeFunction("get", 1, (interpreter, arguments) ->
+                        get(arguments.get(0)));
+            case "has":
+                return new NativeFunction("has", 1, (interpreter, arguments) ->
+                        has(arguments.get(0)));
+            case "set":
+                return new NativeFunction("set", 2, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    put(arguments.get(0), arguments.get(1));
+                    return arguments.get(1);
+                });
+            case "remove":
+                return new NativeFunction("remove", 1, (interpreter, arguments) -> {
+                    interpreter.checkMutable(this, null);
+                    return remove(arguments.get(0));
+                });
+            case "keys":
+                return new NativeFunction("keys", 0, (interpreter, arguments) ->
+                        interpreter.created(keys()));
+        }
+
+        throw new IllegalArgumentException("No method " + name);
+    }
+
+    private int find(String key) {
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private void resize(int capacity) {
+
+        String[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new String[capacity];
+        values = new Object[capacity];
+        size = 0;
+
+        for (int index = 0; index < oldKeys.length; index++) {
+            if (oldKeys[index] != null) {
+                put(oldKeys[index], oldValues[index]);
+            }
+        }
+    }
+
+    private void generalize() {
+
+        general = new LinkedHashMap<>();
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != null) {
+                general.put(keys[index], values[index]);
+            }
+        }
+
+        keys = null;
+        values = null;
+    }
+
+    private static int hash(String key) {
+
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        StringBuilder builder = new StringBuilder("{");
+        LoxList keys = keys();
+        for (int index = 0; index < keys.size(); index++) {
+
+            if (index > 0) {
+                builder.append(", ");
+            }
+
+            Object key = keys.get(index);
+            builder.append(Interpreter.stringify(key)).append(": ")
+                    .append(Interpreter.stringify(get(key)));
+        }
+
+        return builder.append("}").toString();
+    }
+}
@@ -0,0 +1,132 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.scanner.Token;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// a function with a bounded cache of results keyed by its arguments, compared as == compares them;
+// only for pure functions, since a hit skips the call
+public class LoxMemo implements LoxCallable, LoxObject {
+
+    private static final List<String> METHODS = List.of("hits", "misses", "size", "clear");
+
+    private final LoxCallable function;
+    private final Map<List<Object>, Object> results;
+    private long hits;
+    private long misses;
+
+    // bound on first use
+    private NativeFunction[] methods;
+
+    public LoxMemo(LoxCallable function, int maxEntries) {
+        this.function = function;
+        this.results = new LinkedHashMap<List<Object>, Object>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public int arity() {
+        return function.arity();
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+
+        // strings built by concatenation are compared by their text, whole numbers by value
+        List<Object> key = new ArrayList<>(arguments.size());
+        for (Object argument : arguments) {
+            key.add(Numbers.normalize(LoxString.flatten(argument)));
+        }
+
+        synchronized (this) {
+            if (results.containsKey(key)) {
+                hits++;
+                return results.get(key);
+            }
+
+            misses++;
+        }
+
+        // not held while calling, tasks may call in at the same time and compute the same result
+        Object result = function.call(interpreter, arguments);
+
+        synchronized (this) {
+            results.put(key, result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public Object get(Token name) {
+
+        int index = METHODS.indexOf(name.lexeme);
+        if (index < 0) {
+            throw new RuntimeError(name, "Undefined property '" + name.lexeme + "' for memoized function");
+        }
+
+        NativeFunction[] methods = this.methods;
+        if (methods == null) {
+            methods = new NativeFunction[METHODS.size()];
+            this.methods = methods;
+        }
+
+        NativeFunction method = methods[index];
+        if (method == null) {
+            method = bind(name.lexeme);
+            methods[index] = method;
+        }
+
+        return method;
+    }
+
+    private NativeFunction bind(String name) {
+
+        switch (name) {
+
+            case "hits":
+                return new NativeFunction("hits", 0, (interpreter, arguments) -> {
+                    synchronized (this) {
+                        return Numbers.box(hits);
+                    }
+                });
+            case "misses":
+                return new NativeFunction("misses", 0, (interpreter, arguments) -> {
+                    synchronized (this) {
+                        return Numbers.box(misses);
+                    }
+                });
+            case "size":
+                return new NativeFunction("size", 0, (interpreter, arguments) -> {
+                    synchronized (this) {
+                        return Numbers.box(results.size());
+                    }
+                });
+            case "clear":
+                return new NativeFunction("clear", 0, (interpreter, arguments) -> {
+                    synchronized (this) {
+                        results.clear();
+                        hits = 0;
+                        misses = 0;
+                    }
+
+                    return null;
+                });
+        }
+
+        throw new IllegalArgumentException("No method " + name);
+    }
+
+    @Override
+    public String toString() {
+        return "<memo " + function + ">";
+    }
+}
@@ -0,0 +1,151 @@
+package com.nervestaple.jlox.interpreter;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// counts what every interpreter in this JVM does, published over JMX as com.nervestaple.jlox:type=Metrics
+public class LoxMetrics implements LoxMetricsMXBean {
+
+    public static final LoxMetrics INSTANCE = new LoxMetrics();
+
+    private static boolean registered;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder instances = new LongAdder();
+    private final LongAdder environments = new LongAdder();
+    final LongAdder runtimeErrors = new LongAdder();
+    private final LongAdder modulesCompiled = new LongAdder();
+    private final LongAdder scriptsRun = new LongAdder();
+    private final LongAdder parseTime = new LongAdder();
+    private final LongAdder resolveTime = new LongAdder();
+    private final LongAdder executeTime = new LongAdder();
+    private volatile Script lastScript;
+
+    private LoxMetrics() {
+    }
+
+    public static synchronized void register() {
+
+        if (registered) {
+            return;
+        }
+
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                    new ObjectName("com.nervestaple.jlox:type=Metrics"));
+        } catch (JMException exception) {
+
+            // another copy of the interpreter in this JVM got there first
+        }
+    }
+
+    void published(long calls, long environments, long instances) {
+        this.calls.add(calls);
+        this.environments.add(environments);
+        this.instances.add(instances);
+    }
+
+    public void compiled(long parseTime, long resolveTime) {
+        modulesCompiled.increment();
+        compiledSource(parseTime, resolveTime);
+    }
+
+    // source compiled from a string rather than loaded as a module
+    public void compiledSource(long parseTime, long resolveTime) {
+        this.parseTime.add(parseTime);
+        this.resolveTime.add(resolveTime);
+    }
+
+    public void ran(String script, long parseTime, long resolveTime, long executeTime) {
+        scriptsRun.increment();
+        this.executeTime.add(executeTime);
+        lastScript = new Script(script, parseTime, resolveTime, executeTime);
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getInstances() {
+        return instances.sum();
+    }
+
+    @Override
+    public long getEnvironments() {
+        return environments.sum();
+    }
+
+    @Override
+    public long getRuntimeErrors() {
+        return runtimeErrors.sum();
+    }
+
+    @Override
+    public long getModulesCompiled() {
+        return modulesCompiled.sum();
+    }
+
+    @Override
+    public long getScriptsRun() {
+        return scriptsRun.sum();
+    }
+
+    @Override
+    public long getParseTime() {
+        return parseTime.sum();
+    }
+
+    @Override
+    public long getResolveTime() {
+        return resolveTime.sum();
+    }
+
+    @Override
+    public long getExecuteTime() {
+        return executeTime.sum();
+    }
+
+    @Override
+    public String getLastScript() {
+        Script script = lastScript;
+        return script == null ? null : script.name;
+    }
+
+    @Override
+    public long getLastScriptParseTime() {
+        Script script = lastScript;
+        return script == null ? 0 : script.parseTime;
+    }
+
+    @Override
+    public long getLastScriptResolveTime() {
+        Script script = lastScript;
+        return script == null ? 0 : script.resolveTime;
+    }
+
+    @Override
+    public long getLastScriptExecuteTime() {
+        Script script = lastScript;
+        return script == null ? 0 : script.executeTime;
+    }
+
+    private static class Script {
+
+        final String name;
+        final long parseTime;
+        final long resolveTime;
+        final long executeTime;
+
+        Script(String name, long parseTime, long resolveTime, long executeTime) {
+            this.name = name;
+            this.parseTime = parseTime;
+            this.resolveTime = resolveTime;
+            this.executeTime = executeTime;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.nervestaple.jlox.interpreter;
+
+// interpreter activity across every engine in the JVM, times are in nanoseconds
+public interface LoxMetricsMXBean {
+
+    long getCalls();
+
+    long getInstances();
+
+    // environments created for the blocks and calls that ran
+    long getEnvironments();
+
+    long getRuntimeErrors();
+
+    long getModulesCompiled();
+
+    long getScriptsRun();
+
+    long getParseTime();
+
+    long getResolveTime();
+
+    long getExecuteTime();
+
+    String getLastScript();
+
+    long getLastScriptParseTime();
+
+    long getLastScriptResolveTime();
+
+    long getLastScriptExecuteTime();
+}
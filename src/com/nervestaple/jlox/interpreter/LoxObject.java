@@ -0,0 +1,9 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.scanner.Token;
+
+// a value with properties that can be read with "."
+public interface LoxObject {
+
+    Object get(Token name);
+}
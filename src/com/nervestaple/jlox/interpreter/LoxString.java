@@ -0,0 +1,100 @@
+package com.nervestaple.jlox.interpreter;
+
+// a string built by concatenation; appending to the newest string on a buffer extends it in place
+// rather than copying, and the text is only materialized when something needs it
+public class LoxString {
+
+    // shorter results are plain strings
+    private static final int THRESHOLD = 64;
+
+    private final StringBuilder buffer;
+    private final int length;
+    private String text;
+
+    private LoxString(StringBuilder buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+    }
+
+    int length() {
+        return length;
+    }
+
+    public static boolean isString(Object value) {
+        return value instanceof String || value instanceof LoxString;
+    }
+
+    // the plain string for a Lox string value, any other value is returned as-is
+    public static Object flatten(Object value) {
+
+        if (value instanceof LoxString) {
+            return value.toString();
+        }
+
+        return value;
+    }
+
+    public static Object concat(Object left, Object right) {
+
+        if (left instanceof LoxString) {
+            return ((LoxString) left).append(right);
+        }
+
+        String text = (String) left;
+        StringBuilder buffer;
+        if (text.length() < THRESHOLD) {
+
+            String result = text + Interpreter.stringify(right);
+            if (result.length() < THRESHOLD) {
+                return result;
+            }
+
+            buffer = new StringBuilder(result.length() * 2).append(result);
+        } else {
+            buffer = new StringBuilder(text.length() * 2).append(text);
+            append(buffer, right);
+        }
+
+        return new LoxString(buffer, buffer.length());
+    }
+
+    private LoxString append(Object right) {
+
+        synchronized (buffer) {
+
+            // the buffer has already been extended from this string, start a new one
+            if (buffer.length() != length) {
+                StringBuilder copy = new StringBuilder(length * 2);
+                copy.append(buffer, 0, length);
+                append(copy, right);
+                return new LoxString(copy, copy.length());
+            }
+
+            append(buffer, right);
+            return new LoxString(buffer, buffer.length());
+        }
+    }
+
+    private static void append(StringBuilder buffer, Object value) {
+
+        if (value instanceof Long) {
+            NumberFormatter.append(buffer, (long) value);
+        } else if (value instanceof Double) {
+            NumberFormatter.append(buffer, (double) value);
+        } else {
+            buffer.append(Interpreter.stringify(value));
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        if (text == null) {
+            synchronized (buffer) {
+                text = buffer.substring(0, length);
+            }
+        }
+
+        return text;
+    }
+}
@@ -0,0 +1,133 @@
+package com.nervestaple.jlox.interpreter;
+
+// prints numbers like Double.toString but without ".0" on whole ones, which below ten million are
+// written directly and cached when common
+class NumberFormatter {
+
+    // the most characters a formatted number can take up
+    static final int MAX_LENGTH = 32;
+
+    private static final double PLAIN_LIMIT = 1e7;
+    private static final String[] SMALL = new String[1024];
+
+    static {
+        for (int index = 0; index < SMALL.length; index++) {
+            SMALL[index] = Integer.toString(index);
+        }
+    }
+
+    static String format(double value) {
+
+        if (!isPlainInteger(value)) {
+            return Double.toString(value);
+        }
+
+        long integer = (long) value;
+        if (integer == 0 && isNegativeZero(value)) {
+            return "-0";
+        }
+
+        if (integer >= 0 && integer < SMALL.length) {
+            return SMALL[(int) integer];
+        }
+
+        return Long.toString(integer);
+    }
+
+    static String format(long value) {
+
+        if (value >= 0 && value < SMALL.length) {
+            return SMALL[(int) value];
+        }
+
+        if (Math.abs(value) >= PLAIN_LIMIT) {
+            return format((double) value);
+        }
+
+        return Long.toString(value);
+    }
+
+    static void append(StringBuilder builder, long value) {
+
+        if (Math.abs(value) >= PLAIN_LIMIT) {
+            append(builder, (double) value);
+            return;
+        }
+
+        builder.append(value);
+    }
+
+    static void append(StringBuilder builder, double value) {
+
+        if (!isPlainInteger(value)) {
+            builder.append(value);
+            return;
+        }
+
+        if (isNegativeZero(value)) {
+            builder.append('-');
+        }
+
+        builder.append((long) value);
+    }
+
+    // writes the number at position, there must be room for MAX_LENGTH characters
+    static int write(double value, char[] buffer, int position) {
+
+        if (!isPlainInteger(value)) {
+            String text = Double.toString(value);
+            text.getChars(0, text.length(), buffer, position);
+            return position + text.length();
+        }
+
+        if (isNegativeZero(value)) {
+            buffer[position++] = '-';
+        }
+
+        return writeDigits((long) value, buffer, position);
+    }
+
+    static int write(long value, char[] buffer, int position) {
+
+        if (Math.abs(value) >= PLAIN_LIMIT) {
+            return write((double) value, buffer, position);
+        }
+
+        return writeDigits(value, buffer, position);
+    }
+
+    private static int writeDigits(long integer, char[] buffer, int position) {
+
+        if (integer < 0) {
+            buffer[position++] = '-';
+            integer = -integer;
+        }
+
+        int end = position + digits(integer);
+        for (int index = end - 1; index >= position; index--) {
+            buffer[index] = (char) ('0' + integer % 10);
+            integer /= 10;
+        }
+
+        return end;
+    }
+
+    private static boolean isPlainInteger(double value) {
+        return Math.abs(value) < PLAIN_LIMIT && value == Math.rint(value);
+    }
+
+    private static boolean isNegativeZero(double value) {
+        return value == 0 && Double.doubleToRawLongBits(value) != 0;
+    }
+
+    private static int digits(long value) {
+
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+
+        return digits;
+    }
+}
@@ -0,0 +1,152 @@
+package com.nervestaple.jlox.interpreter;
+
+// Lox numbers are Longs while whole and within 2^53 and Doubles otherwise, with every result the
+// same as double arithmetic would give
+public final class Numbers {
+
+    // the largest magnitude a Long may have, beyond it doubles can't hold every whole number
+    public static final long MAX_EXACT = 1L << 53;
+
+    private static final long CACHE_LOW = -128;
+    private static final Long[] CACHE = new Long[1024 + 128];
+
+    static {
+        for (int index = 0; index < CACHE.length; index++) {
+            CACHE[index] = CACHE_LOW + index;
+        }
+    }
+
+    private Numbers() {
+    }
+
+    static boolean isNumber(Object value) {
+        return value instanceof Long || value instanceof Double;
+    }
+
+    static double toDouble(Object value) {
+
+        if (value instanceof Long) {
+            return (long) value;
+        }
+
+        return (double) value;
+    }
+
+    // a whole number from 1 up that fits in an int, i.e. a size or a count, or -1 if it isn't one
+    static int toCount(Object value) {
+
+        if (!isNumber(value)) {
+            return -1;
+        }
+
+        double number = toDouble(value);
+        if (number < 1 || number > Integer.MAX_VALUE || number != Math.floor(number)) {
+            return -1;
+        }
+
+        return (int) number;
+    }
+
+    // a count no bigger than max, or -1 if it isn't one
+    static int toCount(Object value, int max) {
+
+        int count = toCount(value);
+        return count > max ? -1 : count;
+    }
+
+    static Long box(long value) {
+
+        if (value >= CACHE_LOW && value < CACHE_LOW + CACHE.length) {
+            return CACHE[(int) (value - CACHE_LOW)];
+        }
+
+        return value;
+    }
+
+    // the number as a Long when that represents it exactly, i.e. when read back from unboxed storage
+    static Object of(double value) {
+
+        if (value == Math.rint(value) && Math.abs(value) <= MAX_EXACT
+                && (value != 0 || Double.doubleToRawLongBits(value) == 0)) {
+            return box((long) value);
+        }
+
+        return value;
+    }
+
+    // how the number is compared and hashed, Longs and Doubles with the same value are equal
+    static Object normalize(Object value) {
+
+        if (value instanceof Long) {
+            return (double) (long) value;
+        }
+
+        return value;
+    }
+
+    // equality as Double.equals has it, so NaN equals itself and -0 doesn't equal 0
+    static boolean equal(Object left, Object right) {
+
+        if (left instanceof Long && right instanceof Long) {
+            return (long) left == (long) right;
+        }
+
+        return Double.doubleToLongBits(toDouble(left)) == Double.doubleToLongBits(toDouble(right));
+    }
+
+    static Object add(long left, long right) {
+        return exact(left + right, (double) left + (double) right);
+    }
+
+    static Object subtract(long left, long right) {
+        return exact(left - right, (double) left - (double) right);
+    }
+
+    static Object multiply(long left, long right) {
+
+        // in doubles a zero product with a negative factor is -0
+        if ((left == 0 && right < 0) || (right == 0 && left < 0)) {
+            return -0.0;
+        }
+
+        long high = Math.multiplyHigh(left, right);
+        long product = left * right;
+        if ((high == 0 && product >= 0) || (high == -1 && product < 0)) {
+            return exact(product, (double) left * (double) right);
+        }
+
+        return (double) left * (double) right;
+    }
+
+    // the divisor must not be zero
+    static Object divide(long left, long right) {
+
+        if (left == 0 && right < 0) {
+            return -0.0;
+        }
+
+        if (left % right == 0) {
+            return box(left / right);
+        }
+
+        return (double) left / (double) right;
+    }
+
+    static Object negate(long value) {
+
+        if (value == 0) {
+            return -0.0;
+        }
+
+        return box(-value);
+    }
+
+    private static Object exact(long result, double rounded) {
+
+        if (result > MAX_EXACT || result < -MAX_EXACT) {
+            return rounded;
+        }
+
+        return box(result);
+    }
+}
@@ -0,0 +1,111 @@
+package com.nervestaple.jlox.interpreter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+// buffers what a script prints until the buffer fills, the script ends or it's flushed; in line mode,
+// which the REPL uses, every line is written straight away
+public class Output {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer target;
+    private final boolean lineMode;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+
+    // set once another thread may print, after which writes are synchronized
+    private volatile boolean shared;
+
+    public Output(OutputStream target, boolean lineMode) {
+        this.target = new OutputStreamWriter(target, Charset.defaultCharset());
+        this.lineMode = lineMode;
+    }
+
+    public void println(Object value) {
+
+        if (shared) {
+            synchronized (this) {
+                write(value);
+            }
+        } else {
+            write(value);
+        }
+    }
+
+    public void flush() {
+
+        if (shared) {
+            synchronized (this) {
+                drain();
+            }
+        } else {
+            drain();
+        }
+    }
+
+    // must be called by the thread printing so far, before any other thread prints
+    void share() {
+        shared = true;
+    }
+
+    private void write(Object value) {
+
+        // numbers are formatted straight into the buffer
+        if (Numbers.isNumber(value)) {
+            if (position + NumberFormatter.MAX_LENGTH + 1 > buffer.length) {
+                drain();
+            }
+
+            if (value instanceof Long) {
+                position = NumberFormatter.write((long) value, buffer, position);
+            } else {
+                position = NumberFormatter.write((double) value, buffer, position);
+            }
+
+            buffer[position++] = '\n';
+        } else {
+            write(Interpreter.stringify(value));
+        }
+
+        if (lineMode) {
+            drain();
+        }
+    }
+
+    private void write(String text) {
+
+        int length = text.length();
+        if (position + length + 1 > buffer.length) {
+            drain();
+        }
+
+        if (length + 1 > buffer.length) {
+            try {
+                target.write(text);
+                target.write('\n');
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        } else {
+            text.getChars(0, length, buffer, position);
+            position += length;
+            buffer[position++] = '\n';
+        }
+    }
+
+    private void drain() {
+
+        try {
+            target.write(buffer, 0, position);
+            target.flush();
+            position = 0;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
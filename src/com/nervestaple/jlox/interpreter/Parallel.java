@@ -0,0 +1,162 @@
+package com.nervestaple.jlox.interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// data-parallel natives over lists, functions passed to them must be free of side effects
+public class Parallel {
+
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+    public static void defineNatives(Environment environment) {
+
+        environment.define("parallelMap", new NativeFunction("parallelMap", 2, (interpreter, arguments) -> {
+
+            LoxList list = list(arguments.get(0), "parallelMap");
+            LoxCallable function = callable(arguments.get(1), "parallelMap", 1);
+
+            Object[] results = new Object[list.size()];
+            POOL.invoke(new Chunk(interpreter, 0, list.size(), threshold(list), (task, from, to) -> {
+
+                for (int index = from; index < to; index++) {
+                    results[index] = function.call(task, List.of(list.get(index)));
+                }
+
+                return null;
+            }, null));
+
+            return interpreter.created(new LoxList(Arrays.asList(results)));
+        }));
+
+        environment.define("parallelFilter", new NativeFunction("parallelFilter", 2, (interpreter, arguments) -> {
+
+            LoxList list = list(arguments.get(0), "parallelFilter");
+            LoxCallable function = callable(arguments.get(1), "parallelFilter", 1);
+
+            boolean[] keep = new boolean[list.size()];
+            POOL.invoke(new Chunk(interpreter, 0, list.size(), threshold(list), (task, from, to) -> {
+
+                for (int index = from; index < to; index++) {
+                    keep[index] = Interpreter.isTruthy(function.call(task, List.of(list.get(index))));
+                }
+
+                return null;
+            }, null));
+
+            List<Object> results = new ArrayList<>();
+            for (int index = 0; index < keep.length; index++) {
+                if (keep[index]) {
+                    results.add(list.get(index));
+                }
+            }
+
+            return interpreter.created(new LoxList(results));
+        }));
+
+        // the function must be associative and the initial value an identity for it
+        environment.define("parallelReduce", new NativeFunction("parallelReduce", 3, (interpreter, arguments) -> {
+
+            LoxList list = list(arguments.get(0), "parallelReduce");
+            LoxCallable function = callable(arguments.get(1), "parallelReduce", 2);
+            Object initial = arguments.get(2);
+
+            return POOL.invoke(new Chunk(interpreter, 0, list.size(), threshold(list), (task, from, to) -> {
+
+                Object result = initial;
+                for (int index = from; index < to; index++) {
+                    result = function.call(task, List.of(result, list.get(index)));
+                }
+
+                return result;
+            }, (task, left, right) -> function.call(task, List.of(left, right))));
+        }));
+    }
+
+    private static int threshold(LoxList list) {
+        return Math.max(1, list.size() / (POOL.getParallelism() * 4));
+    }
+
+    private static LoxList list(Object value, String name) {
+
+        if (!(value instanceof LoxList)) {
+            throw new RuntimeError("First argument to " + name + " must be a list");
+        }
+
+        return (LoxList) value;
+    }
+
+    private static LoxCallable callable(Object value, String name, int arity) {
+
+        if (!(value instanceof LoxCallable) || ((LoxCallable) value).arity() != arity) {
+            throw new RuntimeError("Function passed to " + name + " must take "
+                    + arity + (arity == 1 ? " argument" : " arguments"));
+        }
+
+        return (LoxCallable) value;
+    }
+
+    private interface Work {
+        Object compute(Interpreter task, int from, int to);
+    }
+
+    private interface Combine {
+        Object combine(Interpreter task, Object left, Object right);
+    }
+
+    // splits a range of the list until it's small enough to run on one worker
+    private static class Chunk extends RecursiveTask<Object> {
+
+        private final Interpreter interpreter;
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final Work work;
+        private final Combine combine;
+
+        Chunk(Interpreter interpreter, int from, int to, int threshold, Work work, Combine combine) {
+            this.interpreter = interpreter;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.work = work;
+            this.combine = combine;
+        }
+
+        @Override
+        protected Object compute() {
+
+            // every chunk runs with its own interpreter state
+            if (to - from <= threshold) {
+
+                Interpreter task = interpreter.forkPure();
+                try {
+                    return work.compute(task, from, to);
+                } finally {
+                    task.publishMetrics();
+                }
+            }
+
+            int middle = (from + to) >>> 1;
+            Chunk left = new Chunk(interpreter, from, middle, threshold, work, combine);
+            Chunk right = new Chunk(interpreter, middle, to, threshold, work, combine);
+
+            left.fork();
+            Object rightResult = right.compute();
+            Object leftResult = left.join();
+
+            if (combine == null) {
+                return null;
+            }
+
+            Interpreter task = interpreter.forkPure();
+            try {
+                return combine.combine(task, leftResult, rightResult);
+            } finally {
+                task.publishMetrics();
+            }
+        }
+    }
+}
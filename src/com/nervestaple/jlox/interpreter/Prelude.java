@@ -0,0 +1,118 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.ErrorReporter;
+import com.nervestaple.jlox.module.ModuleLoader;
+import com.nervestaple.jlox.parser.Expr;
+import com.nervestaple.jlox.parser.Parser;
+import com.nervestaple.jlox.parser.Stmt;
+import com.nervestaple.jlox.resolver.Resolver;
+import com.nervestaple.jlox.scanner.Scanner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// the natives and library code every interpreter starts with, built once and shared read-only
+public class Prelude {
+
+    private static final String LIBRARY = String.join("\n",
+            "fun abs(x) {",
+            "  if (x < 0) return -x;",
+            "  return x;",
+            "}",
+            "",
+            "fun min(a, b) {",
+            "  if (a < b) return a;",
+            "  return b;",
+            "}",
+            "",
+            "fun max(a, b) {",
+            "  if (a > b) return a;",
+            "  return b;",
+            "}");
+
+    private static Prelude shared;
+
+    public final Environment environment;
+    public final Map<Expr, Integer> locals;
+
+    private Prelude(Environment environment, Map<Expr, Integer> locals) {
+        this.environment = environment;
+        this.locals = locals;
+    }
+
+    public static synchronized Prelude shared() {
+
+        if (shared == null) {
+            shared = build();
+        }
+
+        return shared;
+    }
+
+    private static Prelude build() {
+
+        Environment natives = new Environment();
+        defineNatives(natives);
+        natives.freeze();
+
+        ErrorReporter reporter = new ErrorReporter(System.err);
+        Scanner scanner = new Scanner(LIBRARY, reporter);
+        Parser parser = new Parser(scanner.scanTokens(), reporter);
+        List<Stmt> statements = parser.parse();
+
+        Map<Expr, Integer> locals = new HashMap<>();
+        Resolver resolver = new Resolver(locals, reporter);
+        resolver.resolve(statements);
+
+        // library code runs once, over the natives
+        Interpreter interpreter = new Interpreter(new Prelude(natives, locals),
+                new ModuleLoader(), reporter, new Output(System.out, false));
+        interpreter.interpret(statements);
+
+        if (reporter.hadError() || reporter.hadRuntimeError()) {
+            throw new IllegalStateException("The Lox prelude could not be loaded");
+        }
+
+        interpreter.global.freeze();
+
+        Environment environment = new Environment();
+        environment.defineAll(natives);
+        environment.defineAll(interpreter.global);
+        environment.freeze();
+
+        return new Prelude(environment, Collections.unmodifiableMap(locals));
+    }
+
+    private static void defineNatives(Environment environment) {
+
+        environment.define("flush", new NativeFunction("flush", 0, (interpreter, arguments) -> {
+            interpreter.checkSideEffect("flush output");
+            interpreter.flush();
+            return null;
+        }));
+
+        environment.define("List", new NativeFunction("List", 0, (interpreter, arguments) ->
+                interpreter.created(new LoxList())));
+
+        environment.define("Map", new NativeFunction("Map", 0, (interpreter, arguments) ->
+                interpreter.created(new LoxMap())));
+
+        environment.define("memoize", new NativeFunction("memoize", 2, (interpreter, arguments) -> {
+
+            LoxCallable function = Tasks.callable(arguments.get(0), "memoize");
+            int maxEntries = Numbers.toCount(arguments.get(1));
+            if (maxEntries < 1) {
+                throw new RuntimeError("Size of a memoized function's cache must be a whole number of at least 1");
+            }
+
+            return new LoxMemo(function, maxEntries);
+        }));
+
+        Timing.defineNatives(environment);
+        FileIO.defineNatives(environment);
+        Tasks.defineNatives(environment);
+        Parallel.defineNatives(environment);
+    }
+}
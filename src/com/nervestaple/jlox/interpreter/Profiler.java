@@ -0,0 +1,176 @@
+package com.nervestaple.jlox.interpreter;
+
+import com.nervestaple.jlox.parser.Stmt;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// samples the Lox call stacks of an interpreter and the tasks it forks, keeping them as collapsed
+// stacks ("a;b;c count") for flame graph tools
+public class Profiler {
+
+    private static final String SCRIPT = "<script>";
+
+    private final long intervalNanos;
+
+    // held weakly, so the stacks of tasks that have finished drop out once they're collected
+    private final Queue<Sampled> stacks = new ConcurrentLinkedQueue<>();
+    private final Map<String, Long> samples = new HashMap<>();
+    private final Map<Stmt.Function, String> labels = new IdentityHashMap<>();
+    private Thread sampler;
+    private long total;
+
+    public Profiler(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+    }
+
+    // the root stack belongs to the script and is sampled even at the top level
+    void register(CallStack stack, boolean root) {
+        stacks.add(new Sampled(stack, root));
+    }
+
+    void unregister(CallStack stack) {
+        stacks.removeIf(sampled -> sampled.get() == stack);
+    }
+
+    public void start() {
+
+        sampler = new Thread(this::sample, "lox-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    public void stop() {
+
+        sampler.interrupt();
+        try {
+            sampler.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void writeCollapsed(Path path) throws IOException {
+
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : samples.entrySet()) {
+                writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+            }
+        }
+    }
+
+    // the functions with the most samples of their own, with the time spent in them and their callees
+    public void printTop(PrintStream out, int count) {
+
+        Map<String, Long> self = new HashMap<>();
+        Map<String, Long> inclusive = new HashMap<>();
+        for (Map.Entry<String, Long> entry : samples.entrySet()) {
+
+            String[] frames = entry.getKey().split(";");
+            self.merge(frames[frames.length - 1], entry.getValue(), Long::sum);
+
+            // recursive functions are counted once per sample
+            Set<String> seen = new HashSet<>();
+            for (String frame : frames) {
+                if (seen.add(frame)) {
+                    inclusive.merge(frame, entry.getValue(), Long::sum);
+                }
+            }
+        }
+
+        List<String> functions = new ArrayList<>(inclusive.keySet());
+        functions.sort((left, right) -> {
+            int order = Long.compare(self.getOrDefault(right, 0L), self.getOrDefault(left, 0L));
+            return order != 0 ? order : Long.compare(inclusive.get(right), inclusive.get(left));
+        });
+
+        out.println(String.format("%d samples every %.1f ms", total, intervalNanos / 1e6));
+        out.println(String.format("%7s %7s  %s", "self", "total", "function"));
+        for (String function : functions.subList(0, Math.min(count, functions.size()))) {
+            out.println(String.format("%6.1f%% %6.1f%%  %s",
+                    percent(self.getOrDefault(function, 0L)), percent(inclusive.get(function)), function));
+        }
+    }
+
+    private void sample() {
+
+        long next = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+
+            for (Iterator<Sampled> iterator = stacks.iterator(); iterator.hasNext(); ) {
+
+                Sampled sampled = iterator.next();
+                CallStack stack = sampled.get();
+                if (stack == null) {
+                    iterator.remove();
+                    continue;
+                }
+
+                Stmt.Function[] functions = stack.snapshot();
+                if (functions.length == 0 && !sampled.root) {
+                    continue;
+                }
+
+                StringBuilder key = new StringBuilder(SCRIPT);
+                for (Stmt.Function function : functions) {
+
+                    // a frame can be caught while it's being pushed
+                    if (function == null) {
+                        break;
+                    }
+
+                    key.append(';').append(label(function));
+                }
+
+                samples.merge(key.toString(), 1L, Long::sum);
+                total++;
+            }
+
+            next += intervalNanos;
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+                } catch (InterruptedException exception) {
+                    return;
+                }
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    private String label(Stmt.Function function) {
+        return labels.computeIfAbsent(function,
+                key -> key.name.lexeme + ":" + key.name.line);
+    }
+
+    private double percent(long count) {
+        return total == 0 ? 0 : 100.0 * count / total;
+    }
+
+    private static class Sampled extends WeakReference<CallStack> {
+
+        final boolean root;
+
+        Sampled(CallStack stack, boolean root) {
+            super(stack);
+            this.root = root;
+        }
+    }
+}
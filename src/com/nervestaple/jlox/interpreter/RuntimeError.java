@@ -6,6 +6,11 @@ public class RuntimeError extends RuntimeException {
 
     public final Token token;
 
+    // for natives, the interpreter fills in the token of the call
+    public RuntimeError(String message) {
+        this(null, message);
+    }
+
     public RuntimeError(Token token, String message) {
         super(message);
         this.token = token;
@@ -0,0 +1,22 @@
+package com.nervestaple.jlox.interpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.nervestaple.jlox.RuntimeError")
+@Label("Lox Runtime Error")
+@Description("A runtime error that stopped a Lox script")
+@Category("Lox")
+@StackTrace(false)
+class RuntimeErrorEvent extends Event {
+
+    @Label("Message")
+    String message;
+
+    @Label("Line")
+    int line;
+}
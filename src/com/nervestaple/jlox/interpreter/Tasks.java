@@ -0,0 +1,108 @@
+package com.nervestaple.jlox.interpreter;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// natives for running Lox functions concurrently
+public class Tasks {
+
+    public static final ExecutorService EXECUTOR = createExecutor();
+
+    // a channel's buffer is allocated up front
+    private static final int MAX_CHANNEL_CAPACITY = 1 << 20;
+
+    public static void defineNatives(Environment environment) {
+
+        environment.define("spawn", new NativeFunction("spawn", 1, (interpreter, arguments) -> {
+
+            interpreter.checkSideEffect("spawn a task");
+
+            LoxCallable function = callable(arguments.get(0), "spawn");
+            if (function.arity() != 0) {
+                throw new RuntimeError("Can only spawn functions that take no arguments");
+            }
+
+            // each task gets its own interpreter state, sharing globals with its parent
+            Interpreter task = interpreter.fork();
+            LoxFuture future = new LoxFuture(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return function.call(task, List.of());
+                } finally {
+                    task.publishMetrics();
+                }
+            }, EXECUTOR));
+            interpreter.watch(future);
+            return future;
+        }));
+
+        environment.define("await", new NativeFunction("await", 1, (interpreter, arguments) -> {
+
+            if (!(arguments.get(0) instanceof LoxFuture)) {
+                throw new RuntimeError("Can only await a future");
+            }
+
+            return ((LoxFuture) arguments.get(0)).await();
+        }));
+
+        environment.define("channel", new NativeFunction("channel", 1, (interpreter, arguments) -> {
+
+            // a channel with no capacity hands each value straight to a receiver
+            Object argument = arguments.get(0);
+            int capacity = Numbers.isNumber(argument) && Numbers.toDouble(argument) == 0
+                    ? 0 : Numbers.toCount(argument, MAX_CHANNEL_CAPACITY);
+            if (capacity < 0) {
+                throw new RuntimeError("Channel capacity must be a whole number from 0 to " + MAX_CHANNEL_CAPACITY);
+            }
+
+            return new LoxChannel(capacity);
+        }));
+
+        environment.define("send", new NativeFunction("send", 2, (interpreter, arguments) -> {
+            interpreter.checkSideEffect("send on a channel");
+            channel(arguments.get(0), "send").send(arguments.get(1));
+            return null;
+        }));
+
+        environment.define("receive", new NativeFunction("receive", 1, (interpreter, arguments) -> {
+            interpreter.checkSideEffect("receive from a channel");
+            return channel(arguments.get(0), "receive").receive();
+        }));
+    }
+
+    static LoxCallable callable(Object value, String name) {
+
+        if (!(value instanceof LoxCallable)) {
+            throw new RuntimeError("Argument to " + name + " must be a function");
+        }
+
+        return (LoxCallable) value;
+    }
+
+    private static LoxChannel channel(Object value, String name) {
+
+        if (!(value instanceof LoxChannel)) {
+            throw new RuntimeError("Argument to " + name + " must be a channel");
+        }
+
+        return (LoxChannel) value;
+    }
+
+    private static ExecutorService createExecutor() {
+
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException exception) {
+
+            // virtual threads need JDK 21, otherwise use daemon platform threads
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "lox-task");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
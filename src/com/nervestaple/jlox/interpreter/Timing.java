@@ -0,0 +1,83 @@
+package com.nervestaple.jlox.interpreter;
+
+import java.util.Arrays;
+import java.util.List;
+
+// natives for timing Lox code
+public class Timing {
+
+    // every iteration's time is kept to find the percentiles
+    private static final int MAX_ITERATIONS = 1_000_000;
+
+    public static void defineNatives(Environment environment) {
+
+        environment.define("clock", new NativeFunction("clock", 0,
+                (interpreter, arguments) -> System.currentTimeMillis() / 1000.0));
+
+        // monotonic, only meaningful as the difference between two readings
+        environment.define("nanoTime", new NativeFunction("nanoTime", 0,
+                (interpreter, arguments) -> (double) System.nanoTime()));
+
+        environment.define("elapsed", new NativeFunction("elapsed", 1, (interpreter, arguments) -> {
+
+            if (!Numbers.isNumber(arguments.get(0))) {
+                throw new RuntimeError("Argument to elapsed must be a time from nanoTime");
+            }
+
+            return (System.nanoTime() - Numbers.toDouble(arguments.get(0))) / 1e9;
+        }));
+
+        environment.define("bench", new NativeFunction("bench", 2, (interpreter, arguments) -> {
+
+            LoxCallable function = Tasks.callable(arguments.get(0), "bench");
+            if (function.arity() != 0) {
+                throw new RuntimeError("Can only bench functions that take no arguments");
+            }
+
+            int iterations = Numbers.toCount(arguments.get(1), MAX_ITERATIONS);
+            if (iterations < 1) {
+                throw new RuntimeError("Iterations for bench must be a whole number from 1 to " + MAX_ITERATIONS);
+            }
+
+            return interpreter.created(bench(interpreter, function, iterations));
+        }));
+    }
+
+    private static LoxMap bench(Interpreter interpreter, LoxCallable function, int iterations) {
+
+        // give the JIT a chance to compile the paths the function takes
+        int warmup = Math.max(10, iterations / 10);
+        for (int index = 0; index < warmup; index++) {
+            function.call(interpreter, List.of());
+        }
+
+        long[] times = new long[iterations];
+        long total = 0;
+        for (int index = 0; index < iterations; index++) {
+
+            long start = System.nanoTime();
+            function.call(interpreter, List.of());
+            times[index] = System.nanoTime() - start;
+            total += times[index];
+        }
+
+        Arrays.sort(times);
+
+        LoxMap results = new LoxMap();
+        results.put("iterations", (double) iterations);
+        results.put("mean", (double) total / iterations);
+        results.put("min", (double) times[0]);
+        results.put("p50", percentile(times, 0.50));
+        results.put("p90", percentile(times, 0.90));
+        results.put("p99", percentile(times, 0.99));
+        results.put("max", (double) times[iterations - 1]);
+        return results;
+    }
+
+    // nearest-rank percentile of sorted times
+    private static double percentile(long[] times, double fraction) {
+
+        int rank = (int) Math.ceil(fraction * times.length);
+        return times[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,54 @@
+package com.nervestaple.jlox.module;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+// what compiling a module cost per phase, in nanoseconds and bytes allocated by the compiling
+// thread, or -1 where the JVM doesn't count allocations
+public class CompileStats {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public final long scanTime;
+    public final long scanBytes;
+    public final int tokens;
+
+    public final long parseTime;
+    public final long parseBytes;
+    public final int nodes;
+
+    public final long resolveTime;
+    public final long resolveBytes;
+    public final int locals;
+
+    public static final CompileStats NONE = new CompileStats(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    public CompileStats(long scanTime, long scanBytes, int tokens,
+                        long parseTime, long parseBytes, int nodes,
+                        long resolveTime, long resolveBytes, int locals) {
+        this.scanTime = scanTime;
+        this.scanBytes = scanBytes;
+        this.tokens = tokens;
+        this.parseTime = parseTime;
+        this.parseBytes = parseBytes;
+        this.nodes = nodes;
+        this.resolveTime = resolveTime;
+        this.resolveBytes = resolveBytes;
+        this.locals = locals;
+    }
+
+    // bytes allocated by the current thread so far
+    public static long allocatedBytes() {
+
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+
+        return -1;
+    }
+
+    // the bytes allocated since an earlier reading, or -1 if they aren't counted
+    public static long allocatedSince(long start) {
+        return start < 0 ? -1 : allocatedBytes() - start;
+    }
+}
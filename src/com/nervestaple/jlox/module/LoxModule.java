@@ -0,0 +1,35 @@
+package com.nervestaple.jlox.module;
+
+import com.nervestaple.jlox.parser.Expr;
+import com.nervestaple.jlox.parser.Stmt;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class LoxModule {
+
+    public final Path path;
+    public final List<Stmt> statements;
+    public final Map<Expr, Integer> locals;
+    public final List<Path> imports;
+    public final List<String> errors;
+
+    // what compiling this module cost
+    public final CompileStats stats;
+
+    public LoxModule(Path path, List<Stmt> statements, Map<Expr, Integer> locals,
+                     List<Path> imports, List<String> errors, CompileStats stats) {
+        this.path = path;
+        this.statements = statements;
+        this.locals = locals;
+        this.imports = imports;
+        this.errors = errors;
+        this.stats = stats;
+    }
+
+    @Override
+    public String toString() {
+        return "<module " + path + ">";
+    }
+}
@@ -0,0 +1,282 @@
+package com.nervestaple.jlox.module;
+
+import com.nervestaple.jlox.ErrorReporter;
+import com.nervestaple.jlox.interpreter.LoxMetrics;
+import com.nervestaple.jlox.parser.Expr;
+import com.nervestaple.jlox.parser.Parser;
+import com.nervestaple.jlox.parser.Stmt;
+import com.nervestaple.jlox.resolver.Resolver;
+import com.nervestaple.jlox.scanner.Scanner;
+import com.nervestaple.jlox.scanner.Token;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class ModuleLoader {
+
+    private final ForkJoinPool pool;
+
+    // every module we've started loading, keyed by normalized path
+    private final Map<Path, ForkJoinTask<LoxModule>> modules = new ConcurrentHashMap<>();
+
+    // the path each import statement refers to
+    private final Map<Stmt.Import, Path> imports = new ConcurrentHashMap<>();
+
+    public ModuleLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ModuleLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public LoxModule load(Path path, ErrorReporter reporter) throws IOException {
+
+        Path normalized = normalize(path);
+        LoadTask task = new LoadTask(normalized, null, null);
+        ForkJoinTask<LoxModule> existing = modules.putIfAbsent(normalized, task);
+
+        LoxModule module;
+        try {
+
+            if (existing != null) {
+                module = existing.join();
+            } else {
+                module = pool.invoke(task);
+            }
+        } catch (UncheckedIOException exception) {
+            modules.remove(normalized);
+            throw exception.getCause();
+        }
+
+        report(List.of(normalized), reporter);
+        return module;
+    }
+
+    public void link(List<Stmt> statements, Path directory, ErrorReporter reporter) {
+
+        pool.invoke(new LinkTask(statements, directory));
+
+        List<Path> linked = new ArrayList<>();
+        for (Stmt statement : statements) {
+            if (imports.containsKey(statement)) {
+                linked.add(imports.get(statement));
+            }
+        }
+
+        report(linked, reporter);
+    }
+
+    public LoxModule moduleFor(Stmt.Import stmt, ErrorReporter reporter) {
+
+        Path path = imports.get(stmt);
+        if (path == null) {
+
+            // imports typed at the prompt are relative to the working directory
+            link(List.of(stmt), Path.of(""), reporter);
+            path = imports.get(stmt);
+        } else if (!modules.containsKey(path)) {
+
+            LoadTask task = new LoadTask(path, null, stmt.path);
+            if (modules.putIfAbsent(path, task) == null) {
+                pool.invoke(task);
+            }
+
+            report(List.of(path), reporter);
+        }
+
+        // the module had errors and was dropped
+        ForkJoinTask<LoxModule> task = modules.get(path);
+        if (task == null) {
+            return null;
+        }
+
+        return task.join();
+    }
+
+    // hands the errors from a module graph to the reporter of whoever loaded it
+    private void report(List<Path> paths, ErrorReporter reporter) {
+
+        Set<Path> visited = new HashSet<>();
+        for (Path path : paths) {
+            report(path, reporter, visited);
+        }
+    }
+
+    private boolean report(Path path, ErrorReporter reporter, Set<Path> visited) {
+
+        ForkJoinTask<LoxModule> task = modules.get(path);
+        if (!visited.add(path) || task == null) {
+            return false;
+        }
+
+        LoxModule module = task.join();
+        for (String error : module.errors) {
+            reporter.report(error);
+        }
+
+        boolean broken = !module.errors.isEmpty();
+        for (Path imported : module.imports) {
+            broken |= report(imported, reporter, visited);
+        }
+
+        // broken modules, and those importing them, are compiled again next time
+        if (broken) {
+            modules.remove(path, task);
+        }
+
+        return broken;
+    }
+
+    // importer is the module the statements are from, or null for source that isn't a module
+    private List<ForkJoinTask<LoxModule>> forkImports(List<Stmt> statements, Path importer, Path directory,
+                                                       List<Path> paths) {
+
+        List<ForkJoinTask<LoxModule>> forked = new ArrayList<>();
+        for (Stmt statement : statements) {
+
+            if (!(statement instanceof Stmt.Import)) {
+                continue;
+            }
+
+            Stmt.Import stmt = (Stmt.Import) statement;
+            Path path = normalize(directory.resolve((String) stmt.path.literal));
+            imports.put(stmt, path);
+            paths.add(path);
+
+            // modules that another task is already loading will be joined by that task
+            LoadTask task = new LoadTask(path, importer, stmt.path);
+            if (modules.putIfAbsent(path, task) == null) {
+                forked.add(task.fork());
+            }
+        }
+
+        return forked;
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    // collects errors to keep with a module, prefixed with the path of the module they're in when
+    // that isn't the script being run
+    private static ErrorReporter collector(List<String> errors, Path path) {
+
+        String prefix = path == null ? "" : path + ": ";
+        return new ErrorReporter(null) {
+
+            @Override
+            protected void print(String message) {
+                errors.add(prefix + message);
+            }
+        };
+    }
+
+    private class LinkTask extends RecursiveTask<LoxModule> {
+
+        private final List<Stmt> statements;
+        private final Path directory;
+
+        LinkTask(List<Stmt> statements, Path directory) {
+            this.statements = statements;
+            this.directory = directory;
+        }
+
+        @Override
+        protected LoxModule compute() {
+
+            for (ForkJoinTask<LoxModule> task : forkImports(statements, null, directory, new ArrayList<>())) {
+                task.join();
+            }
+
+            return null;
+        }
+    }
+
+    private class LoadTask extends RecursiveTask<LoxModule> {
+
+        private final Path path;
+        private final Path importer;
+        private final Token importedAt;
+
+        LoadTask(Path path, Path importer, Token importedAt) {
+            this.path = path;
+            this.importer = importer;
+            this.importedAt = importedAt;
+        }
+
+        @Override
+        protected LoxModule compute() {
+
+            // errors are kept with the module and reported to each context that loads it
+            List<String> errors = new ArrayList<>();
+            ErrorReporter reporter = collector(errors, importedAt == null ? null : path);
+
+            String source;
+            try {
+                source = new String(Files.readAllBytes(path), Charset.defaultCharset());
+            } catch (IOException exception) {
+
+                if (importedAt == null) {
+                    throw new UncheckedIOException(exception);
+                }
+
+                // the import that failed is in the importing module
+                collector(errors, importer).error(importedAt, "Cannot read module \"" + path + "\"");
+                return new LoxModule(path, List.of(), Map.of(), List.of(), errors, CompileStats.NONE);
+            }
+
+            long start = System.nanoTime();
+            long allocated = CompileStats.allocatedBytes();
+            Scanner scanner = new Scanner(source, reporter);
+            List<Token> tokens = scanner.scanTokens();
+            long scanTime = System.nanoTime() - start;
+            long scanBytes = CompileStats.allocatedSince(allocated);
+
+            start = System.nanoTime();
+            allocated = CompileStats.allocatedBytes();
+            Parser parser = new Parser(tokens, reporter);
+            List<Stmt> statements = parser.parse();
+            long parseTime = System.nanoTime() - start;
+            long parseBytes = CompileStats.allocatedSince(allocated);
+
+            // resolve this module while its imports load on other workers
+            List<Path> paths = new ArrayList<>();
+            List<ForkJoinTask<LoxModule>> forked = forkImports(statements, path, path.getParent(), paths);
+
+            start = System.nanoTime();
+            allocated = CompileStats.allocatedBytes();
+            Map<Expr, Integer> locals = new HashMap<>();
+            int nodes = 0;
+            if (!reporter.hadError()) {
+                Resolver resolver = new Resolver(locals, reporter);
+                resolver.resolve(statements);
+                nodes = resolver.nodes();
+            }
+            long resolveTime = System.nanoTime() - start;
+            long resolveBytes = CompileStats.allocatedSince(allocated);
+            LoxMetrics.INSTANCE.compiled(scanTime + parseTime, resolveTime);
+
+            for (ForkJoinTask<LoxModule> task : forked) {
+                task.join();
+            }
+
+            CompileStats stats = new CompileStats(scanTime, scanBytes, tokens.size(),
+                    parseTime, parseBytes, nodes, resolveTime, resolveBytes, locals.size());
+            return new LoxModule(path, statements, locals, paths, errors, stats);
+        }
+    }
+}
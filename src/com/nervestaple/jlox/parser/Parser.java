@@ -1,6 +1,6 @@
 package com.nervestaple.jlox.parser;
 
-import com.nervestaple.jlox.Lox;
+import com.nervestaple.jlox.ErrorReporter;
 import com.nervestaple.jlox.scanner.Token;
 import com.nervestaple.jlox.scanner.TokenType;
 
@@ -13,10 +13,15 @@ import static com.nervestaple.jlox.scanner.TokenType.*;
 public class Parser {
 
     private final List<Token> tokens;
+    private final ErrorReporter reporter;
     private int current = 0;
 
-    public Parser(List<Token> tokens) {
+    // set when the function being parsed contains a yield, making it a generator
+    private boolean yielded = false;
+
+    public Parser(List<Token> tokens, ErrorReporter reporter) {
         this.tokens = tokens;
+        this.reporter = reporter;
     }
 
     public List<Stmt> parse() {
@@ -34,7 +39,7 @@ public class Parser {
     }
 
     private ParseError error(Token token, String message) {
-        Lox.error(token, message);
+        reporter.error(token, message);
         return new ParseError();
     }
 
@@ -47,7 +52,16 @@ public class Parser {
             }
 
             if (match(FUN)) {
-                return function("function");
+                return function("function", false);
+            }
+
+            if (match(PURE)) {
+                consume(FUN, "Expected 'fun' after 'pure'");
+                return function("function", true);
+            }
+
+            if (match(IMPORT)) {
+                return importDeclaration();
             }
 
             if (match(VAR)) {
@@ -75,7 +89,7 @@ public class Parser {
 
         List<Stmt.Function> methods = new ArrayList<>();
         while(!check(RIGHT_BRACE) && !isAtEnd()) {
-            methods.add(function("method"));
+            methods.add(function("method", false));
         }
 
         consume(RIGHT_BRACE, "Expecting '}' after the class body");
@@ -83,6 +97,14 @@ public class Parser {
         return new Stmt.Class(name, superclass, methods);
     }
 
+    private Stmt importDeclaration() {
+
+        Token keyword = previous();
+        Token path = consume(STRING, "Expecting a module path after 'import'");
+        consume(SEMICOLON, "Expecting \";\" after module path");
+        return new Stmt.Import(keyword, path);
+    }
+
     private Stmt varDeclaration() {
 
         Token name = consume(IDENTIFIER, "Expecting a variable name");
@@ -114,6 +136,10 @@ public class Parser {
             return returnStatement();
         }
 
+        if (match(YIELD)) {
+            return yieldStatement();
+        }
+
         if (match(WHILE)) {
             return whileStatement();
         }
@@ -127,8 +153,13 @@ public class Parser {
 
     private Stmt forStatement() {
 
+        Token keyword = previous();
         consume(LEFT_PAREN, "Expected '(' after 'for'");
 
+        if (check(VAR) && checkNext(IDENTIFIER, 1) && checkNext(IN, 2)) {
+            return forInStatement();
+        }
+
         Stmt initializer = null;
         if (match(SEMICOLON)) {
             initializer = null;
@@ -164,7 +195,7 @@ public class Parser {
         if (condition == null) {
             condition = new Expr.Literal(true);
         }
-        body = new Stmt.While(condition, body);
+        body = new Stmt.While(keyword, condition, body);
 
         // initializer
         if (initializer != null) {
@@ -174,13 +205,27 @@ public class Parser {
         return body;
     }
 
+    private Stmt forInStatement() {
+
+        consume(VAR, "Expected 'var' in for loop");
+        Token name = consume(IDENTIFIER, "Expected loop variable name");
+        consume(IN, "Expected 'in' after loop variable");
+
+        Expr iterable = expression();
+        consume(RIGHT_PAREN, "Expected ')' after for clause");
+
+        Stmt body = statement();
+        return new Stmt.ForIn(name, iterable, body);
+    }
+
     private Stmt whileStatement() {
 
+        Token keyword = previous();
         consume(LEFT_PAREN, "Expected '(' after 'while'");
         Expr condition = expression();
         consume(RIGHT_PAREN, "Expected ')' after condition");
         Stmt body = statement();
-        return new Stmt.While(condition, body);
+        return new Stmt.While(keyword, condition, body);
     }
 
     private Stmt ifStatement() {
@@ -201,9 +246,10 @@ public class Parser {
 
     private Stmt printStatement() {
 
+        Token keyword = previous();
         Expr value = expression();
         consume(SEMICOLON, "Expecting \";\" after value");
-        return new Stmt.Print(value);
+        return new Stmt.Print(keyword, value);
     }
 
     private Stmt returnStatement() {
@@ -218,6 +264,19 @@ public class Parser {
         return new Stmt.Return(keyword, value);
     }
 
+    private Stmt yieldStatement() {
+
+        Token keyword = previous();
+        Expr value = null;
+        if (!check(SEMICOLON)) {
+            value = expression();
+        }
+
+        consume(SEMICOLON, "Expecting ';' after yield value");
+        yielded = true;
+        return new Stmt.Yield(keyword, value);
+    }
+
     private Stmt expressionStatement() {
 
         Expr expr = expression();
@@ -225,7 +284,7 @@ public class Parser {
         return new Stmt.Expression(expr);
     }
 
-    private Stmt.Function function(String kind) {
+    private Stmt.Function function(String kind, boolean pure) {
 
         Token name = consume(IDENTIFIER, "Expecting " + kind + " name");
 
@@ -243,9 +302,14 @@ public class Parser {
         consume(RIGHT_PAREN, "Expeccting ')' after parameters");
 
         consume(LEFT_BRACE, "Expecting '{' before " + kind + " body");
+
+        boolean enclosingYielded = yielded;
+        yielded = false;
         List<Stmt> body = block();
+        boolean generator = yielded;
+        yielded = enclosingYielded;
 
-        return new Stmt.Function(name, parameters, body);
+        return new Stmt.Function(name, parameters, body, generator, pure);
     }
 
     private List<Stmt> block() {
@@ -279,6 +343,9 @@ public class Parser {
             } else if (expr instanceof Expr.Get) {
                 Expr.Get get = (Expr.Get) expr;
                 return new Expr.Set(get.object, get.name, value);
+            } else if (expr instanceof Expr.Index) {
+                Expr.Index index = (Expr.Index) expr;
+                return new Expr.SetIndex(index.object, index.bracket, index.index, value);
             }
 
             error(equals, "Invalid assignment target");
@@ -411,6 +478,10 @@ public class Parser {
             } else if (match(DOT)) {
                 Token name = consume(IDENTIFIER, "Expecting a property name after '.'");
                 expr = new Expr.Get(expr, name);
+            } else if (match(LEFT_BRACKET)) {
+                Expr index = expression();
+                Token bracket = consume(RIGHT_BRACKET, "Expecting ']' after index");
+                expr = new Expr.Index(expr, bracket, index);
             } else {
                 break;
             }
@@ -494,12 +565,15 @@ public class Parser {
             switch (peek().type) {
                 case CLASS:
                 case FUN:
+                case IMPORT:
                 case VAR:
                 case FOR:
                 case IF:
                 case WHILE:
                 case PRINT:
+                case PURE:
                 case RETURN:
+                case YIELD:
                     return;
             }
 
@@ -551,6 +625,15 @@ public class Parser {
         return peek().type == EOF;
     }
 
+    private boolean checkNext(TokenType tokenType, int distance) {
+
+        if (current + distance >= tokens.size()) {
+            return false;
+        }
+
+        return tokens.get(current + distance).type == tokenType;
+    }
+
     private Token peek() {
         return tokens.get(current);
     }
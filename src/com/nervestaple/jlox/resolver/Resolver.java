@@ -1,7 +1,6 @@
 package com.nervestaple.jlox.resolver;
 
-import com.nervestaple.jlox.Lox;
-import com.nervestaple.jlox.interpreter.Interpreter;
+import com.nervestaple.jlox.ErrorReporter;
 import com.nervestaple.jlox.parser.Expr;
 import com.nervestaple.jlox.parser.Stmt;
 import com.nervestaple.jlox.scanner.Token;
@@ -26,13 +25,21 @@ enum ClassType {
 
 public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
-    private final Interpreter interpreter;
+    private final Map<Expr, Integer> locals;
+    private final ErrorReporter reporter;
     private final Stack<Map<String, Boolean>> scopes = new Stack<>();
     private FunctionType currentFunction = FunctionType.NONE;
+    private boolean inGenerator = false;
+
+    // the outermost pure function being resolved and the index of its scope, nothing outside it may change
+    private Stmt.Function pureFunction;
+    private int pureScope;
     private ClassType currentClass = ClassType.NONE;
+    private int nodes;
 
-    public Resolver(Interpreter interpreter) {
-        this.interpreter = interpreter;
+    public Resolver(Map<Expr, Integer> locals, ErrorReporter reporter) {
+        this.locals = locals;
+        this.reporter = reporter;
     }
 
     @Override
@@ -73,6 +80,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
                 declaration = FunctionType.INITIALIZER;
             }
 
+            nodes++;
             resolveFunction(method, declaration);
         }
 
@@ -102,7 +110,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
         if (!scopes.isEmpty()
                 && scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
-            Lox.error(expr.name, "Cannot read from a local variable in it's own initializer");
+            reporter.error(expr.name, "Cannot read from a local variable in it's own initializer");
         }
 
         resolveLocal(expr, expr.name);
@@ -113,6 +121,12 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visit(Expr.Assign expr) {
         resolve(expr.value);
         resolveLocal(expr, expr.name);
+
+        if (pureFunction != null && scopeOf(expr.name) < pureScope) {
+            reporter.error(expr.name, "Cannot assign to a variable declared outside pure function '"
+                    + pureFunction.name.lexeme + "'");
+        }
+
         return null;
     }
 
@@ -144,8 +158,24 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visit(Stmt.Import stmt) {
+
+        if (!scopes.isEmpty()) {
+            reporter.error(stmt.keyword, "Cannot import a module outside of the top level");
+        }
+
+        return null;
+    }
+
     @Override
     public Void visit(Stmt.Print stmt) {
+
+        if (pureFunction != null) {
+            reporter.error(stmt.keyword, "Cannot print from pure function '"
+                    + pureFunction.name.lexeme + "'");
+        }
+
         resolve(stmt.expression);
         return null;
     }
@@ -154,13 +184,17 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visit(Stmt.Return stmt) {
 
         if(currentFunction == FunctionType.NONE) {
-            Lox.error(stmt.keyword, "Cannot return from outside a function");
+            reporter.error(stmt.keyword, "Cannot return from outside a function");
         }
 
         if (stmt.value != null) {
 
             if (currentFunction == FunctionType.INITIALIZER) {
-                Lox.error(stmt.keyword, "Cannot return a value from an initializer");
+                reporter.error(stmt.keyword, "Cannot return a value from an initializer");
+            }
+
+            if (inGenerator) {
+                reporter.error(stmt.keyword, "Cannot return a value from a generator");
             }
 
             resolve(stmt.value);
@@ -176,6 +210,37 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visit(Stmt.ForIn stmt) {
+
+        resolve(stmt.iterable);
+
+        beginScope();
+        declare(stmt.name);
+        define(stmt.name);
+        resolve(stmt.body);
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visit(Stmt.Yield stmt) {
+
+        if (currentFunction == FunctionType.NONE) {
+            reporter.error(stmt.keyword, "Cannot yield from outside a function");
+        }
+
+        if (currentFunction == FunctionType.INITIALIZER) {
+            reporter.error(stmt.keyword, "Cannot yield from an initializer");
+        }
+
+        if (stmt.value != null) {
+            resolve(stmt.value);
+        }
+
+        return null;
+    }
+
     @Override
     public Void visit(Expr.Binary expr) {
         resolve(expr.left);
@@ -206,6 +271,13 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         return null;
     }
 
+    @Override
+    public Void visit(Expr.Index expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        return null;
+    }
+
     @Override
     public Void visit(Expr.Literal expr) {
         return null;
@@ -220,8 +292,28 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
     @Override
     public Void visit(Expr.Set expr) {
+
+        if (pureFunction != null) {
+            reporter.error(expr.name, "Cannot set a field in pure function '"
+                    + pureFunction.name.lexeme + "'");
+        }
+
+        resolve(expr.value);
+        resolve(expr.object);
+        return null;
+    }
+
+    @Override
+    public Void visit(Expr.SetIndex expr) {
+
+        if (pureFunction != null) {
+            reporter.error(expr.bracket, "Cannot set an element in pure function '"
+                    + pureFunction.name.lexeme + "'");
+        }
+
         resolve(expr.value);
         resolve(expr.object);
+        resolve(expr.index);
         return null;
     }
 
@@ -229,9 +321,9 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visit(Expr.Super expr) {
 
         if (currentClass == ClassType.NONE) {
-            Lox.error(expr.keyword, "Cannot use 'super' outside of a class");
+            reporter.error(expr.keyword, "Cannot use 'super' outside of a class");
         } else if (currentClass != ClassType.SUBCLASS) {
-            Lox.error(expr.keyword, "Cannot use 'super' in a class with no superclass");
+            reporter.error(expr.keyword, "Cannot use 'super' in a class with no superclass");
         }
 
         resolveLocal(expr, expr.keyword);
@@ -242,7 +334,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     public Void visit(Expr.This expr) {
 
         if (currentClass == ClassType.NONE) {
-            Lox.error(expr.keyword, "Cannot use 'this' outside of a class");
+            reporter.error(expr.keyword, "Cannot use 'this' outside of a class");
             return null;
         }
 
@@ -264,17 +356,33 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
     }
 
     public void resolve(Stmt statement) {
+        nodes++;
         statement.accept(this);
     }
 
     public void resolve(Expr expr) {
+        nodes++;
         expr.accept(this);
     }
 
+    // how many statements and expressions have been resolved
+    public int nodes() {
+        return nodes;
+    }
+
     private void resolveFunction(Stmt.Function function, FunctionType type) {
 
         FunctionType enclosingFunction = currentFunction;
+        boolean enclosingGenerator = inGenerator;
         currentFunction = type;
+        inGenerator = function.generator;
+
+        // functions nested in a pure function are held to the same rules
+        Stmt.Function enclosingPure = pureFunction;
+        if (function.pure && pureFunction == null) {
+            pureFunction = function;
+            pureScope = scopes.size();
+        }
 
         beginScope();
         for (Token param : function.params) {
@@ -285,13 +393,27 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
         resolve(function.body);
         endScope();
         currentFunction = enclosingFunction;
+        inGenerator = enclosingGenerator;
+        pureFunction = enclosingPure;
+    }
+
+    // the index of the scope a name is declared in, or -1 for a global
+    private int scopeOf(Token name) {
+
+        for (int index = scopes.size() - 1; index >= 0; index--) {
+            if (scopes.get(index).containsKey(name.lexeme)) {
+                return index;
+            }
+        }
+
+        return -1;
     }
 
     private void resolveLocal(Expr expr, Token name) {
 
         for (int index = scopes.size() - 1; index >= 0; index--) {
             if (scopes.get(index).containsKey(name.lexeme)) {
-                interpreter.resolve(expr, scopes.size() - 1 - index);
+                locals.put(expr, scopes.size() - 1 - index);
                 return;
             }
         }
@@ -305,7 +427,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
         Map<String, Boolean> scope = scopes.peek();
         if (scope.containsKey(name.lexeme)) {
-            Lox.error(name, "Variable with this name is already declared in scope");
+            reporter.error(name, "Variable with this name is already declared in scope");
         }
 
         scope.put(name.lexeme, false);
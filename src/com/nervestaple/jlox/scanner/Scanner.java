@@ -1,6 +1,7 @@
 package com.nervestaple.jlox.scanner;
 
-import com.nervestaple.jlox.Lox;
+import com.nervestaple.jlox.ErrorReporter;
+import com.nervestaple.jlox.interpreter.Numbers;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -12,6 +13,8 @@ import static com.nervestaple.jlox.scanner.TokenType.*;
 public class Scanner {
 
     private final String source;
+    private final Map<String, String> symbols;
+    private final ErrorReporter reporter;
     private final List<Token> tokens = new ArrayList<>();
     private int start = 0;
     private int current = 0;
@@ -28,19 +31,29 @@ public class Scanner {
         keywords.put("for",      FOR);
         keywords.put("fun",      FUN);
         keywords.put("if",       IF);
+        keywords.put("import",   IMPORT);
+        keywords.put("in",       IN);
         keywords.put("nil",      NIL);
         keywords.put("or",       OR);
         keywords.put("print",    PRINT);
+        keywords.put("pure",     PURE);
         keywords.put("return",   RETURN);
         keywords.put("super",    SUPER);
         keywords.put("this",     THIS);
         keywords.put("true",     TRUE);
         keywords.put("var",      VAR);
         keywords.put("while",    WHILE);
+        keywords.put("yield",    YIELD);
     }
 
-    public Scanner(String source) {
+    public Scanner(String source, ErrorReporter reporter) {
+        this(source, new HashMap<>(), reporter);
+    }
+
+    public Scanner(String source, Map<String, String> symbols, ErrorReporter reporter) {
         this.source = source;
+        this.symbols = symbols;
+        this.reporter = reporter;
     }
 
     public List<Token> scanTokens() {
@@ -68,6 +81,8 @@ public class Scanner {
             case ')': addToken(RIGHT_PAREN); break;
             case '{': addToken(LEFT_BRACE); break;
             case '}': addToken(RIGHT_BRACE); break;
+            case '[': addToken(LEFT_BRACKET); break;
+            case ']': addToken(RIGHT_BRACKET); break;
             case ',': addToken(COMMA); break;
             case '.': addToken(DOT); break;
             case '-': addToken(MINUS); break;
@@ -113,7 +128,7 @@ public class Scanner {
                 } else if (isAlpha(c)) {
                     identifier();
                 } else {
-                    Lox.error(line, "Unexpected character: '" + c + "'");
+                    reporter.error(line, "Unexpected character: '" + c + "'");
                 }
                 break;
         }
@@ -131,9 +146,12 @@ public class Scanner {
         TokenType type = keywords.get(text);
         if (type == null) {
             type = IDENTIFIER;
+
+            // share one string per name so environment lookups compare by reference
+            text = symbols.computeIfAbsent(text, symbol -> symbol);
         }
 
-        addToken(type);
+        tokens.add(new Token(type, text, null, line));
     }
 
     private void number() {
@@ -143,7 +161,9 @@ public class Scanner {
         }
 
         // look for a fractional component
+        boolean fractional = false;
         if (peek() == '.' && isDigit(peekNext())) {
+            fractional = true;
 
             // consume the .
             advance();
@@ -153,7 +173,13 @@ public class Scanner {
             }
         }
 
-        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+        // whole numbers are Longs, as long as a double could hold every one up to them
+        double value = Double.parseDouble(source.substring(start, current));
+        if (!fractional && value <= Numbers.MAX_EXACT) {
+            addToken(NUMBER, (long) value);
+        } else {
+            addToken(NUMBER, value);
+        }
     }
 
     private void string() {
@@ -168,7 +194,7 @@ public class Scanner {
 
             // unterminated string
             if (isAtEnd()) {
-                Lox.error(line, "Unterminated string");
+                reporter.error(line, "Unterminated string");
                 return;
             }
         }
@@ -3,8 +3,8 @@ package com.nervestaple.jlox.scanner;
 public enum TokenType {
 
     // single characters
-    LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, COMMA, DOT, MINUS, PLUS,
-    SEMICOLON, SLASH, STAR, TERN_OP, TERN_ELSE,
+    LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, LEFT_BRACKET, RIGHT_BRACKET,
+    COMMA, DOT, MINUS, PLUS, SEMICOLON, SLASH, STAR, TERN_OP, TERN_ELSE,
 
     // one or two characters
     BANG, BANG_EQUAL, EQUAL, EQUAL_EQUAL, GREATER, GREATER_EQUAL, LESS,
@@ -14,8 +14,8 @@ public enum TokenType {
     IDENTIFIER, STRING, NUMBER,
 
     // keywords
-    AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NIL, OR, PRINT, RETURN, SUPER, THIS,
-    TRUE, VAR, WHILE,
+    AND, CLASS, ELSE, FALSE, FUN, FOR, IF, IMPORT, IN, NIL, OR, PRINT, PURE, RETURN, SUPER, THIS,
+    TRUE, VAR, WHILE, YIELD,
 
     EOF
 }
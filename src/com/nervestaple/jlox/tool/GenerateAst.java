@@ -25,18 +25,20 @@ public class GenerateAst {
                 outputDir,
                 "Expr",
                 Arrays.asList(
-                        "Assign    : Token name, Expr value",
-                        "Binary    : Expr left, Token operator, Expr right",
+                        "Assign    : Token name, Expr value | Object cell, Object fused",
+                        "Binary    : Expr left, Token operator, Expr right | Object fused",
                         "Call      : Expr callee, Token paren, List<Expr> arguments",
                         "Get       : Expr object, Token name",
                         "Grouping  : Expr expression",
+                        "Index     : Expr object, Token bracket, Expr index",
                         "Literal   : Object value",
                         "Logical   : Expr left, Token operator, Expr right",
-                        "Set       : Expr object, Token name, Expr value",
+                        "Set       : Expr object, Token name, Expr value | Object fused",
+                        "SetIndex  : Expr object, Token bracket, Expr index, Expr value",
                         "Super     : Token keyword, Token method",
                         "This      : Token keyword",
                         "Unary     : Token operator, Expr right",
-                        "Variable  : Token name"
+                        "Variable  : Token name | Object cell"
                 ));
 
         defineAst(
@@ -46,12 +48,15 @@ public class GenerateAst {
                         "Block      : List<Stmt> statements",
                         "Class      : Token name, Expr.Variable superclass, List<Stmt.Function> methods",
                         "Expression : Expr expression",
-                        "Function   : Token name, List<Token> params, List<Stmt> body",
+                        "ForIn      : Token name, Expr iterable, Stmt body",
+                        "Function   : Token name, List<Token> params, List<Stmt> body, boolean generator, boolean pure",
                         "If         : Expr condition, Stmt thenBranch, Stmt elseBranch",
-                        "Print      : Expr expression",
+                        "Import     : Token keyword, Token path",
+                        "Print      : Token keyword, Expr expression",
                         "Return     : Token keyword, Expr value",
                         "Var        : Token name, Expr initializer",
-                        "While      : Expr condition, Stmt body"
+                        "While      : Token keyword, Expr condition, Stmt body",
+                        "Yield      : Token keyword, Expr value"
                 ));
     }
 
@@ -73,11 +78,12 @@ public class GenerateAst {
         defineVisitor(writer, baseName, types);
         writer.println("");
 
-        // the AST classes
+        // the AST classes, fields after a "|" are left for the interpreter to fill in
         for (String type : types) {
             String className = type.split(":")[0].trim();
-            String fields = type.split(":")[1].trim();
-            defineType(writer, baseName, className, fields);
+            String[] fields = type.split(":")[1].split("\\|");
+            defineType(writer, baseName, className, fields[0].trim(),
+                    fields.length > 1 ? fields[1].trim() : null);
         }
 
         // the base accept method
@@ -107,7 +113,8 @@ public class GenerateAst {
             PrintWriter writer,
             String baseName,
             String className,
-            String fieldList) {
+            String fieldList,
+            String mutableFieldList) {
 
         writer.println("  public static class " + className + " extends " + baseName + " {");
         writer.println("");
@@ -132,6 +139,12 @@ public class GenerateAst {
         for (String field : fields) {
             writer.println("    public final " + field + ";");
         }
+
+        if (mutableFieldList != null) {
+            for (String field : mutableFieldList.split(", ")) {
+                writer.println("    public " + field + ";");
+            }
+        }
         writer.println("  }");
         writer.println("");
     }